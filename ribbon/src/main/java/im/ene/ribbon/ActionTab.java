@@ -38,36 +38,50 @@
 
 package im.ene.ribbon;
 
-import android.content.Context;
-import android.graphics.drawable.Drawable;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.IdRes;
-import android.support.v4.content.ContextCompat;
 
+/**
+ * Immutable menu item. Changing an item, with {@link RibbonMenu.Builder}, creates a new instance.
+ */
 public final class ActionTab {
   @IdRes private final int itemId;
   @DrawableRes private final int iconRes;
-  private String title;
-  private int color;
-  private boolean enabled;
+  private final String title;
+  private final int color;
+  private final boolean enabled;
 
-  ActionTab(final int itemId, @DrawableRes final int iconRes, final String title) {
+  ActionTab(final int itemId, @DrawableRes final int iconRes, final String title,
+      final boolean enabled, final int color) {
     this.itemId = itemId;
     this.iconRes = iconRes;
     this.title = title;
-    this.enabled = true;
+    this.enabled = enabled;
+    this.color = color;
   }
 
-  Drawable getIcon(Context context) {
-    return ContextCompat.getDrawable(context, this.iconRes);
+  ActionTab withTitle(final String title) {
+    return new ActionTab(itemId, iconRes, title, enabled, color);
   }
 
-  String getTitle() {
-    return title;
+  ActionTab withIcon(@DrawableRes final int iconRes) {
+    return new ActionTab(itemId, iconRes, title, enabled, color);
   }
 
-  public void setColor(final int color) {
-    this.color = color;
+  ActionTab withColor(final int color) {
+    return new ActionTab(itemId, iconRes, title, enabled, color);
+  }
+
+  ActionTab withEnabled(final boolean enabled) {
+    return new ActionTab(itemId, iconRes, title, enabled, color);
+  }
+
+  @DrawableRes public int getIconRes() {
+    return iconRes;
+  }
+
+  public String getTitle() {
+    return title;
   }
 
   public boolean hasColor() {
@@ -82,10 +96,6 @@ public final class ActionTab {
     return itemId;
   }
 
-  public void setEnabled(final boolean enabled) {
-    this.enabled = enabled;
-  }
-
   public boolean isEnabled() {
     return enabled;
   }
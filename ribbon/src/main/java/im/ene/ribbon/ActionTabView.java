@@ -38,51 +38,194 @@
 
 package im.ene.ribbon;
 
-import android.animation.ArgbEvaluator;
+import android.annotation.TargetApi;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v4.content.ContextCompat;
+import android.text.TextUtils;
 import android.view.View;
-import java.lang.ref.SoftReference;
+import android.view.ViewParent;
+import android.view.animation.DecelerateInterpolator;
 
 abstract class ActionTabView extends View {
   public static final float ALPHA_MAX = 255f;
+
   private ActionTab action;
   protected final int rippleColor;
   private boolean expanded;
   protected final Paint textPaint;
   protected boolean textDirty;
-  protected final ArgbEvaluator evaluator;
-  private final BadgeProvider provider;
+  protected final ColorRamp colorRamp;
+  private final RibbonStyle style;
+  private BadgeProvider provider;
   protected Drawable badge;
   protected Drawable icon;
+  /**
+   * Active variant of the icon, in crossfade mode only: {@link #icon} is then the inactive one
+   */
+  protected Drawable iconActive;
+  private final boolean crossfade;
+  private final boolean sharedRipple;
+  private Drawable ripple;
+  /**
+   * Position of the tab between its inactive (0) and active (1) state
+   */
+  private float position;
+
+  /**
+   * The only animation of the tab, retargeted from the current position at each state change
+   */
+  private final PositionAnimation animation;
 
   public ActionTabView(final BottomNavigationView parent, final boolean expanded,
-      final MenuParser.Menu menu) {
+      final RibbonStyle style) {
     super(parent.getContext());
-    this.evaluator = new ArgbEvaluator();
-    this.rippleColor = menu.getRippleColor();
+    this.colorRamp = style.getColorRamp();
+    this.style = style;
+    this.rippleColor = style.rippleColor;
     this.textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
     this.textDirty = true;
     this.expanded = expanded;
     this.provider = parent.getBadgeProvider();
+    this.crossfade = parent.isIconCrossfadeEnabled();
+    this.sharedRipple = parent.isSharedRippleEnabled();
+    this.position = expanded ? 1 : 0;
+
+    this.animation = new PositionAnimation(style.itemAnimationDuration);
+  }
+
+  protected final void setAnimationDuration(final long duration) {
+    animation.setDuration(duration);
   }
 
+  /**
+   * Binds the item to this view. When the view already displays an item, as when the menu is
+   * updated in place, only the icon and the title which changed are reloaded.
+   */
   void setAction(ActionTab item) {
-    final Drawable drawable =
-        ContextCompat.getDrawable(getContext(), R.drawable.ribbon_ripple_selector);
-    drawable.mutate();
-    MiscUtils.setDrawableColor(drawable, rippleColor);
-    this.setBackground(drawable);
+    final ActionTab previous = this.action;
+    if (!sharedRipple) {
+      if (ripple == null) {
+        ripple = ContextCompat.getDrawable(getContext(), R.drawable.ribbon_ripple_selector);
+        ripple.mutate();
+        MiscUtils.setDrawableColor(ripple, rippleColor);
+      }
+      this.setBackground(ripple);
+    }
 
     this.action = item;
     this.setId(item.getItemId());
     this.setEnabled(item.isEnabled());
     invalidateBadge();
+
+    if (previous != null) {
+      if (previous.getIconRes() != item.getIconRes()) {
+        icon = null;
+        iconActive = null;
+      }
+      if (!TextUtils.equals(previous.getTitle(), item.getTitle())) {
+        textDirty = true;
+      }
+      requestLayout();
+      invalidate();
+    }
+  }
+
+  final RibbonStyle getStyle() {
+    return style;
+  }
+
+  final boolean isIconCrossfade() {
+    return crossfade;
+  }
+
+  final boolean isSharedRipple() {
+    return sharedRipple;
+  }
+
+  /**
+   * Returns the navigation view displaying this tab, if it is attached to one.
+   */
+  @Nullable final BottomNavigationView getNavigationView() {
+    final ViewParent container = getParent();
+    final ViewParent parent = container != null ? container.getParent() : null;
+    return parent instanceof BottomNavigationView ? (BottomNavigationView) parent : null;
+  }
+
+  /**
+   * Returns true if a ripple is displayed when this tab is touched
+   */
+  boolean hasRipple() {
+    return true;
+  }
+
+  @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+  @Override public void drawableHotspotChanged(final float x, final float y) {
+    super.drawableHotspotChanged(x, y);
+    if (sharedRipple && getParent() instanceof SharedRipple.Host) {
+      final SharedRipple ripple = ((SharedRipple.Host) getParent()).getSharedRipple();
+      if (ripple != null) {
+        ripple.onChildHotspotChanged(this, x, y);
+      }
+    }
+  }
+
+  /**
+   * Loads the icon tinted for the current state or, in crossfade mode, its two pre-rendered
+   * variants.
+   */
+  protected final void loadIcon(final int size) {
+    final int iconRes = action.getIconRes();
+    if (crossfade) {
+      icon = IconCache.obtainVariant(getContext(), iconRes, style.colorInactive, size);
+      iconActive = IconCache.obtainVariant(getContext(), iconRes, style.colorActive, size);
+    } else {
+      icon = IconCache.obtain(getContext(), iconRes,
+          expanded ? style.colorActive : style.colorInactive, size);
+    }
+  }
+
+  /**
+   * Displays the icon at {@code position} between its inactive (0) and active (1) state, with the
+   * passed alpha: by changing its tint, or in crossfade mode by blending its two variants.
+   */
+  protected final void setIconState(final float position, final int alpha) {
+    if (crossfade) {
+      // only the active variant fades, over the inactive one at full alpha, so the icon never dims
+      icon.setAlpha(alpha);
+      iconActive.setAlpha((int) (position * alpha));
+    } else {
+      icon.setColorFilter(colorRamp.getColorFilter(position));
+      icon.setAlpha(alpha);
+    }
+  }
+
+  protected final void setIconBounds(final int left, final int top, final int right,
+      final int bottom) {
+    icon.setBounds(left, top, right, bottom);
+    if (iconActive != null) {
+      iconActive.setBounds(left, top, right, bottom);
+    }
+  }
+
+  protected final void drawIcon(final Canvas canvas) {
+    icon.draw(canvas);
+    if (iconActive != null) {
+      iconActive.draw(canvas);
+    }
+  }
+
+  /**
+   * Called when a recycled view is reused by another {@link BottomNavigationView}.
+   */
+  void setBadgeProvider(final BadgeProvider provider) {
+    this.provider = provider;
   }
 
   void invalidateBadge() {
@@ -98,8 +241,13 @@ abstract class ActionTabView extends View {
 
       if (badge != null) {
         badge.setCallback(this);
-        if (badge instanceof Badge && null == getParent()) {
-          ((Badge) badge).setIsAnimating(false);
+        if (badge instanceof Badge) {
+          if (null == getParent()) {
+            ((Badge) badge).setIsAnimating(false);
+          } else {
+            final BottomNavigationView parent = getNavigationView();
+            ((Badge) badge).fadeIn(parent != null ? parent.getAnimationClock() : null, this);
+          }
         }
       }
 
@@ -117,8 +265,28 @@ abstract class ActionTabView extends View {
     }
   }
 
-  protected abstract void onStatusChanged(final boolean expanded, final int size,
-      final boolean animate);
+  /**
+   * Called when the tab is selected or unselected, before its position is animated.
+   *
+   * @param size the new width of the tab, for the layouts sizing it with its state
+   */
+  protected void onStatusChanged(final boolean expanded, final int size, final boolean animate) {
+  }
+
+  /**
+   * Applies the passed position, between the inactive (0) and active (1) state, to the tab
+   * content. Called for each frame of the state animations, the caller invalidates the tab.
+   */
+  protected abstract void onPositionChanged(final float position);
+
+  protected final float getPosition() {
+    return position;
+  }
+
+  private void setPosition(final float position) {
+    this.position = position;
+    onPositionChanged(position);
+  }
 
   public final ActionTab getAction() {
     return action;
@@ -132,6 +300,41 @@ abstract class ActionTabView extends View {
     if (this.expanded != expanded) {
       this.expanded = expanded;
       onStatusChanged(expanded, newSize, animate);
+
+      // a running animation is interrupted and continues from the current position
+      final float target = expanded ? 1 : 0;
+      if (animate) {
+        final BottomNavigationView parent = getNavigationView();
+        animation.from = position;
+        animation.to = target;
+        animation.start(parent != null ? parent.getAnimationClock() : null, this);
+      } else {
+        animation.cancel();
+        setPosition(target);
+        invalidate();
+      }
+    }
+  }
+
+  @Override protected void onDetachedFromWindow() {
+    super.onDetachedFromWindow();
+    // removed or recycled tabs jump to their final state
+    animation.end();
+  }
+
+  /**
+   * Moves the tab between two positions
+   */
+  private final class PositionAnimation extends RibbonAnimationClock.Animation {
+    float from;
+    float to;
+
+    PositionAnimation(final long duration) {
+      super(duration, new DecelerateInterpolator());
+    }
+
+    @Override void onUpdate(final float fraction) {
+      setPosition(from + (to - from) * fraction);
     }
   }
 
@@ -144,15 +347,10 @@ abstract class ActionTabView extends View {
     }
   }
 
-  public void setTypeface(final SoftReference<Typeface> typeface) {
-    if (null != typeface) {
-      Typeface tf = typeface.get();
-      if (null != tf) {
-        textPaint.setTypeface(tf);
-      } else {
-        textPaint.setTypeface(Typeface.DEFAULT);
-      }
-
+  public void setTypeface(@NonNull final Typeface typeface) {
+    // called on every populate, the title is only measured again if the typeface changed
+    if (typeface != textPaint.getTypeface()) {
+      textPaint.setTypeface(typeface);
       textDirty = true;
       requestLayout();
     }
@@ -39,6 +39,7 @@
 package im.ene.ribbon;
 
 import android.animation.Animator;
+import android.graphics.Rect;
 import android.graphics.drawable.ColorDrawable;
 import android.os.Build;
 import android.support.v4.view.ViewCompat;
@@ -57,10 +58,10 @@ class AnimUtil {
     throw new AssertionError("Illegal initialization!");
   }
 
-  static void animate(BottomNavigationView parent, View view, final View backgroundOverlay,
+  static void animate(BottomNavigationView parent, Rect tabBounds, final View backgroundOverlay,
       final ColorDrawable backgroundDrawable, final int newColor, long duration) {
-    int centerX = (int) (ViewCompat.getX(view) + (view.getWidth() / 2));
-    int centerY = parent.getPaddingTop() + view.getHeight() / 2;
+    int centerX = tabBounds.centerX();
+    int centerY = parent.getPaddingTop() + tabBounds.height() / 2;
 
     backgroundOverlay.clearAnimation();
 
@@ -90,6 +91,9 @@ class AnimUtil {
     backgroundOverlay.setVisibility(View.VISIBLE);
 
     if (animator instanceof ViewPropertyAnimatorCompat) {
+      if (parent.isAnimationLayersEnabled()) {
+        ((ViewPropertyAnimatorCompat) animator).withLayer();
+      }
       ((ViewPropertyAnimatorCompat) animator).setListener(new ViewPropertyAnimatorListener() {
         boolean cancelled;
 
@@ -134,6 +138,7 @@ class AnimUtil {
         }
       });
 
+      HardwareLayer.promote(backgroundOverlay, animator1, parent.isAnimationLayersEnabled());
       animator1.start();
     }
   }
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alessandro Crugnola
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package im.ene.ribbon;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.MenuRes;
+import android.support.annotation.NonNull;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import static android.util.Log.INFO;
+import static im.ene.ribbon.MiscUtils.log;
+
+/**
+ * Reads a menu, resolves its attributes, loads its icons and measures its titles on a background
+ * thread, then hands the result to a {@link BottomNavigationView} on the main thread.
+ */
+final class AsyncMenuInflater {
+  private static final String TAG = AsyncMenuInflater.class.getSimpleName();
+
+  /**
+   * Background thread shared by the ribbon loaders
+   */
+  static final Executor EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+    @Override public Thread newThread(@NonNull final Runnable runnable) {
+      final Thread thread = new Thread(new Runnable() {
+        @Override public void run() {
+          Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+          runnable.run();
+        }
+      }, "ribbon-loader");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  private final Context context;
+  private final Handler handler;
+
+  AsyncMenuInflater(@NonNull final Context context) {
+    this.context = context;
+    this.handler = new Handler(Looper.getMainLooper());
+  }
+
+  /**
+   * Inflates the menu in background and delivers it to the target. The result is dropped if
+   * another menu has been requested on the target in the meantime.
+   *
+   * @param menuRes the menu resource to inflate
+   * @param target the view receiving the menu
+   */
+  void inflate(@MenuRes final int menuRes, @NonNull final BottomNavigationView target) {
+    final int request = target.newMenuRequest();
+    final Typeface typeface = target.typeface;
+    log(TAG, INFO, "inflate: %x, request: %d", menuRes, request);
+
+    EXECUTOR.execute(new Runnable() {
+      @Override public void run() {
+        MenuParser.Menu result = null;
+        RuntimeException error = null;
+        try {
+          result = MenuCache.obtain(context, menuRes);
+          if (result != null) {
+            IconCache.preload(context, result);
+            TextCache.preload(context, result, typeface);
+          }
+        } catch (RuntimeException e) {
+          error = e;
+        }
+
+        final MenuParser.Menu menu = result;
+        final RuntimeException failure = error;
+        handler.post(new Runnable() {
+          @Override public void run() {
+            // errors are raised on the main thread, as they would be by setMenuItems
+            if (failure != null) {
+              throw failure;
+            }
+            target.onMenuInflated(request, BottomNavigationView.requireMenu(menu, menuRes));
+          }
+        });
+      }
+    });
+  }
+}
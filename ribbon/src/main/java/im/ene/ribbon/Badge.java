@@ -44,7 +44,8 @@ import android.graphics.Paint;
 import android.graphics.PixelFormat;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
-import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.view.View;
 
 public class Badge extends Drawable {
   private static final String TAG = Badge.class.getSimpleName();
@@ -54,42 +55,51 @@ public class Badge extends Drawable {
   private final float ALPHA_MIN = 100f;
 
   private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-  private long startTimeMillis;
   private boolean animating;
   private final int size;
 
+  private final RibbonAnimationClock.Animation fade =
+      new RibbonAnimationClock.Animation((long) FADE_DURATION, null) {
+        @Override void onUpdate(final float fraction) {
+          paint.setAlpha((int) (ALPHA_MAX * fraction + ALPHA_MIN * (1f - fraction)));
+        }
+
+        @Override void onEnd(final boolean finished) {
+          animating = false;
+        }
+      };
+
   public Badge(final int color, final int size) {
     super();
     this.paint.setColor(color);
     this.size = size;
     this.animating = true;
-    this.startTimeMillis = 0;
+    this.paint.setAlpha((int) ALPHA_MIN);
   }
 
   public final void setIsAnimating(boolean animating) {
     this.animating = animating;
+    if (!animating) {
+      fade.cancel();
+    }
+  }
+
+  /**
+   * Fades the badge in on the passed clock, or shows it right away if there is none.
+   *
+   * @param target the view drawing the badge
+   */
+  final void fadeIn(@Nullable final RibbonAnimationClock clock, final View target) {
+    if (animating) {
+      fade.start(clock, target);
+    }
   }
 
   @Override public void draw(final Canvas canvas) {
     if (!animating) {
       paint.setAlpha((int) ALPHA_MAX);
-      drawInternal(canvas);
-    } else {
-      if (startTimeMillis == 0) {
-        startTimeMillis = SystemClock.uptimeMillis();
-      }
-
-      float normalized = (SystemClock.uptimeMillis() - startTimeMillis) / FADE_DURATION;
-      if (normalized >= 1f) {
-        animating = false;
-        paint.setAlpha((int) ALPHA_MAX);
-        drawInternal(canvas);
-      } else {
-        int partialAlpha = (int) (ALPHA_MAX * normalized + ALPHA_MIN * (1f - normalized));
-        setAlpha(partialAlpha);
-        drawInternal(canvas);
-      }
     }
+    drawInternal(canvas);
   }
 
   private void drawInternal(final Canvas canvas) {
@@ -79,7 +79,7 @@ public class BadgeProvider {
 
   Drawable getBadgeDrawable(@IdRes final int itemId) {
     if (map.contains(itemId)) {
-      return newDrawable(itemId, navigation.menu.getBadgeColor());
+      return newDrawable(itemId, navigation.menu.getStyle(navigation.getResources()).badgeColor);
     }
     return null;
   }
@@ -38,9 +38,11 @@
 
 package im.ene.ribbon;
 
+import android.animation.ObjectAnimator;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.os.Build;
+import android.support.annotation.NonNull;
 import android.support.design.widget.CoordinatorLayout;
 import android.support.design.widget.FloatingActionButton;
 import android.support.design.widget.Snackbar.SnackbarLayout;
@@ -49,10 +51,13 @@ import android.support.v4.view.ViewPropertyAnimatorCompat;
 import android.support.v4.view.ViewPropertyAnimatorUpdateListener;
 import android.support.v4.view.animation.LinearOutSlowInInterpolator;
 import android.util.AttributeSet;
+import android.util.Property;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup.MarginLayoutParams;
 import android.view.animation.Interpolator;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.HashMap;
 import proguard.annotation.Keep;
 import proguard.annotation.KeepClassMembers;
@@ -114,6 +119,33 @@ public class BottomNavigationBehavior extends VerticalScrollingBehavior<BottomNa
    */
   private ViewPropertyAnimatorCompat animator;
 
+  /**
+   * moves the dependent views along with the bar on the main thread, frame by frame
+   */
+  private ViewPropertyAnimatorUpdateListener animatorUpdateListener;
+
+  /**
+   * true if the dependent views should run their own animations alongside the bar's, instead of
+   * following it from a per-frame callback
+   */
+  private boolean parallelDependentAnimation;
+
+  /**
+   * true if the bar should follow the nested scroll deltas and snap when the scroll ends
+   */
+  private boolean scrollLinked;
+
+  /**
+   * true when the bar has been left between its expanded and hidden positions, by a scroll linked
+   * drag or by {@link #setExpandFraction(float)}
+   */
+  private boolean dragged;
+
+  /**
+   * vertical velocity of the last fling of the current nested scroll
+   */
+  private float flingVelocityY;
+
   /**
    * current visibility status
    */
@@ -127,6 +159,13 @@ public class BottomNavigationBehavior extends VerticalScrollingBehavior<BottomNa
   final HashMap<View, DependentView> dependentViewHashMap = new HashMap<>();
   FabDependentView fabDependentView;
   SnackBarDependentView snackbarDependentView;
+
+  /**
+   * views registered through {@link #addDependentView(View)}, they are not CoordinatorLayout
+   * dependencies and are only moved along with the bar
+   */
+  final ArrayList<GenericDependentView> genericDependentViews = new ArrayList<>();
+  private WeakReference<BottomNavigationView> viewRef;
   private OnExpandStatusChangeListener listener;
 
   public BottomNavigationBehavior() {
@@ -143,6 +182,10 @@ public class BottomNavigationBehavior extends VerticalScrollingBehavior<BottomNa
     this.animationDuration =
         array.getInt(R.styleable.BottomNavigationBehavior_bbn_animationDuration,
             context.getResources().getInteger(R.integer.ribbon_hide_animation_duration));
+    this.parallelDependentAnimation = array.getBoolean(
+        R.styleable.BottomNavigationBehavior_bbn_parallelDependentAnimation, false);
+    this.scrollLinked =
+        array.getBoolean(R.styleable.BottomNavigationBehavior_bbn_scrollLinked, false);
     this.scaledTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop() * 2;
     this.offset = 0;
     array.recycle();
@@ -163,8 +206,102 @@ public class BottomNavigationBehavior extends VerticalScrollingBehavior<BottomNa
     return !hidden;
   }
 
+  /**
+   * When enabled, the hide/show animation of the bar runs without per-frame dependent view
+   * callbacks: the floating action button is moved by its own translation animation, started
+   * together with the bar's and using the same duration and interpolator. All the animations
+   * still run on the main thread. Falls back to the per-frame callbacks while a Snackbar is shown.
+   */
+  public void setParallelDependentAnimationEnabled(final boolean enabled) {
+    this.parallelDependentAnimation = enabled;
+  }
+
+  public boolean isParallelDependentAnimationEnabled() {
+    return parallelDependentAnimation;
+  }
+
+  /**
+   * When enabled, the bar's translation follows the nested scroll deltas exactly instead of
+   * waiting for the touch slop, and snaps to expanded or hidden once the scroll stops, according
+   * to its position and the fling velocity.
+   */
+  public void setScrollLinked(final boolean enabled) {
+    this.scrollLinked = enabled;
+  }
+
+  public boolean isScrollLinked() {
+    return scrollLinked;
+  }
+
+  /**
+   * Moves the bar without any animation, so that other scroll sources can drive it.
+   *
+   * @param fraction 1 for the bar fully expanded, 0 for the bar fully hidden
+   */
+  public void setExpandFraction(final float fraction) {
+    final BottomNavigationView child = null != viewRef ? viewRef.get() : null;
+    if (null == child || !enabled) {
+      return;
+    }
+
+    final float value = Math.max(0, Math.min(1, fraction));
+    setTranslation((CoordinatorLayout) child.getParent(), child, (1 - value) * maxOffset);
+  }
+
+  /**
+   * @return 1 for the bar fully expanded, 0 for the bar fully hidden
+   */
+  public float getExpandFraction() {
+    final BottomNavigationView child = null != viewRef ? viewRef.get() : null;
+    if (null == child || maxOffset == 0) {
+      return hidden ? 0 : 1;
+    }
+    return 1 - child.getTranslationY() / maxOffset;
+  }
+
+  private boolean useParallelAnimation() {
+    // the snackbar is offset frame by frame, its translation is its own
+    return parallelDependentAnimation && null == snackbarDependentView;
+  }
+
+  /**
+   * Registers a view which should float above the bar, like a mini player or a custom banner.
+   * The view is laid out as if the bar wasn't there and its margins are left untouched. The
+   * behavior moves it by adding an offset to its translationY, on top of the translation set by
+   * the application, and never touches the view's animate() animator. The offset is taken back
+   * by {@link #removeDependentView(View)}.
+   */
+  public void addDependentView(@NonNull final View view) {
+    for (GenericDependentView dependent : genericDependentViews) {
+      if (dependent.child == view) {
+        return;
+      }
+    }
+
+    log(TAG, INFO, "addDependentView(%s)", view.getClass().getSimpleName());
+    final GenericDependentView dependent = new GenericDependentView(view, height, bottomInset);
+    genericDependentViews.add(dependent);
+
+    final BottomNavigationView navigation = null != viewRef ? viewRef.get() : null;
+    if (null != navigation) {
+      dependent.onDependentViewChanged(null, navigation);
+    }
+  }
+
+  public void removeDependentView(@NonNull final View view) {
+    for (int i = genericDependentViews.size() - 1; i >= 0; i--) {
+      final GenericDependentView dependent = genericDependentViews.get(i);
+      if (dependent.child == view) {
+        log(TAG, INFO, "removeDependentView(%s)", view.getClass().getSimpleName());
+        genericDependentViews.remove(i);
+        dependent.onDestroy();
+      }
+    }
+  }
+
   public void setLayoutValues(final int bottomNavHeight, final int bottomInset) {
     log(TAG, INFO, "setLayoutValues(%d, %d)", bottomNavHeight, bottomInset);
+    final boolean changed = bottomNavHeight != height || bottomInset != this.bottomInset;
     this.height = bottomNavHeight;
     this.bottomInset = bottomInset;
     this.translucentNavigation = bottomInset > 0;
@@ -172,6 +309,15 @@ public class BottomNavigationBehavior extends VerticalScrollingBehavior<BottomNa
     this.enabled = true;
     log(TAG, DEBUG, "height: %d, translucent: %b, maxOffset: %d, bottomInset: %d", height,
         translucentNavigation, maxOffset, bottomInset);
+
+    if (changed) {
+      for (DependentView dependent : dependentViewHashMap.values()) {
+        dependent.setLayoutValues(height, bottomInset);
+      }
+      for (GenericDependentView dependent : genericDependentViews) {
+        dependent.setLayoutValues(height, bottomInset);
+      }
+    }
   }
 
   protected boolean isFloatingActionButton(View dependency) {
@@ -184,13 +330,21 @@ public class BottomNavigationBehavior extends VerticalScrollingBehavior<BottomNa
       return false;
     }
 
-    return isFloatingActionButton(dependency) || SnackbarLayout.class.isInstance(dependency);
+    // views registered through addDependentView are not dependencies, so they are never scanned
+    return dependency instanceof SnackbarLayout || isFloatingActionButton(dependency);
   }
 
   @Override public boolean onLayoutChild(CoordinatorLayout parent, BottomNavigationView view,
       int layoutDirection) {
     boolean handled = super.onLayoutChild(parent, view, layoutDirection);
 
+    if (null == viewRef || viewRef.get() != view) {
+      viewRef = new WeakReference<>(view);
+      for (GenericDependentView dependent : genericDependentViews) {
+        dependent.onDependentViewChanged(parent, view);
+      }
+    }
+
     final int pendingAction = view.getPendingAction();
     if (pendingAction != PENDING_ACTION_NONE) {
       final boolean animate = (pendingAction & PENDING_ACTION_ANIMATE_ENABLED) != 0;
@@ -231,19 +385,21 @@ public class BottomNavigationBehavior extends VerticalScrollingBehavior<BottomNa
   @Override public boolean onDependentViewChanged(CoordinatorLayout parent, BottomNavigationView child,
       View dependency) {
     boolean isFab = isFloatingActionButton(dependency);
-    boolean isSnackBack = SnackbarLayout.class.isInstance(dependency);
 
     DependentView dependent;
 
     if (!dependentViewHashMap.containsKey(dependency)) {
-      if (!isFab && !isSnackBack) {
-        dependent = new GenericDependentView(dependency, height, bottomInset);
-      } else if (isFab) {
+      if (isFab) {
         dependent = new FabDependentView(dependency, height, bottomInset);
         fabDependentView = (FabDependentView) dependent;
       } else {
         dependent = new SnackBarDependentView((SnackbarLayout) dependency, height, bottomInset);
         snackbarDependentView = (SnackBarDependentView) dependent;
+        if (null != fabDependentView) {
+          // the FAB's own behavior now takes over its translation
+          fabDependentView.resetTranslation();
+          fabDependentView.onDependentViewChanged(parent, child);
+        }
       }
       dependentViewHashMap.put(dependency, dependent);
     } else {
@@ -262,6 +418,7 @@ public class BottomNavigationBehavior extends VerticalScrollingBehavior<BottomNa
       final int nestedScrollAxes) {
 
     offset = 0;
+    flingVelocityY = 0;
     if (!scrollable || !scrollEnabled) {
       return false;
     }
@@ -273,12 +430,31 @@ public class BottomNavigationBehavior extends VerticalScrollingBehavior<BottomNa
       final BottomNavigationView child, final View target) {
     super.onStopNestedScroll(coordinatorLayout, child, target);
     offset = 0;
+
+    if (scrollLinked && dragged) {
+      final float velocityY = flingVelocityY != 0 ? flingVelocityY : getNestedScrollVelocity();
+      final boolean expand;
+      if (isSignificantFling(coordinatorLayout, target, velocityY)) {
+        expand = velocityY < 0;
+      } else {
+        expand = child.getTranslationY() < maxOffset / 2f;
+      }
+      log(TAG, VERBOSE, "snap(%b)", expand);
+      setExpanded(coordinatorLayout, child, expand, true);
+    }
   }
 
   @Override public void onDirectionNestedPreScroll(CoordinatorLayout coordinatorLayout,
       BottomNavigationView child, View target, int dx, int dy, int[] consumed,
       @ScrollDirection int scrollDirection) {
 
+    if (scrollLinked) {
+      if (enabled && scrollable && scrollEnabled && dy != 0) {
+        setTranslation(coordinatorLayout, child, child.getTranslationY() + dy);
+      }
+      return;
+    }
+
     offset += dy;
 
     if (offset > scaledTouchSlop) {
@@ -295,7 +471,13 @@ public class BottomNavigationBehavior extends VerticalScrollingBehavior<BottomNa
       @ScrollDirection int scrollDirection) {
     log(TAG, INFO, "onNestedDirectionFling(%g, %d)", velocityY, scrollDirection);
 
-    if (Math.abs(velocityY) > 1000) {
+    if (scrollLinked) {
+      // applied by the snap in onStopNestedScroll
+      flingVelocityY = velocityY;
+      return true;
+    }
+
+    if (isSignificantFling(coordinatorLayout, target, velocityY)) {
       handleDirection(coordinatorLayout, child, scrollDirection);
     }
 
@@ -312,9 +494,9 @@ public class BottomNavigationBehavior extends VerticalScrollingBehavior<BottomNa
     if (!enabled || !scrollable || !scrollEnabled) {
       return;
     }
-    if (scrollDirection == ScrollDirection.SCROLL_DIRECTION_DOWN && hidden) {
+    if (scrollDirection == ScrollDirection.SCROLL_DIRECTION_DOWN && (hidden || dragged)) {
       setExpanded(coordinatorLayout, child, true, true);
-    } else if (scrollDirection == ScrollDirection.SCROLL_DIRECTION_UP && !hidden) {
+    } else if (scrollDirection == ScrollDirection.SCROLL_DIRECTION_UP && (!hidden || dragged)) {
       setExpanded(coordinatorLayout, child, false, true);
     }
   }
@@ -333,45 +515,115 @@ public class BottomNavigationBehavior extends VerticalScrollingBehavior<BottomNa
 
     log(TAG, INFO, "animateOffset(%d)", offset);
     hidden = offset != 0;
-    ensureOrCancelAnimator(coordinatorLayout, child);
+    dragged = false;
+    final boolean parallel = animate && useParallelAnimation();
+    ensureOrCancelAnimator(coordinatorLayout, child, parallel);
+
+    if (parallel) {
+      log(TAG, VERBOSE, "animating the dependent views in parallel");
+      if (null != fabDependentView) {
+        fabDependentView.animateTranslation(child, offset, animationDuration, INTERPOLATOR);
+      }
+      for (int i = 0, size = genericDependentViews.size(); i < size; i++) {
+        genericDependentViews.get(i).animateTranslation(offset, animationDuration, INTERPOLATOR);
+      }
+      animator.translationY(offset).start();
+      return;
+    }
+
+    if (null != fabDependentView) {
+      fabDependentView.resetTranslation();
+    }
 
     if (animate) {
       animator.translationY(offset).start();
     } else {
       child.setTranslationY(offset);
-      if (null != fabDependentView) {
-        fabDependentView.onDependentViewChanged(coordinatorLayout, child);
+      offsetDependents(coordinatorLayout, child);
+    }
+  }
+
+  /**
+   * Moves the dependent views along with the bar's current translation, in the same frame and
+   * without any layout pass.
+   */
+  private void offsetDependents(final CoordinatorLayout coordinatorLayout,
+      final BottomNavigationView child) {
+    if (null != fabDependentView) {
+      fabDependentView.onDependentViewChanged(coordinatorLayout, child);
+    }
+    if (null != snackbarDependentView) {
+      snackbarDependentView.onDependentViewChanged(coordinatorLayout, child);
+    }
+    for (int i = 0, size = genericDependentViews.size(); i < size; i++) {
+      genericDependentViews.get(i).onDependentViewChanged(coordinatorLayout, child);
+    }
+  }
+
+  /**
+   * Moves the bar and its dependent views right away, cancelling any running animation.
+   */
+  private void setTranslation(final CoordinatorLayout coordinatorLayout,
+      final BottomNavigationView child, final float value) {
+    final float translation = Math.max(0, Math.min(maxOffset, value));
+    if (null != animator) {
+      animator.cancel();
+    }
+    if (null != fabDependentView) {
+      fabDependentView.resetTranslation();
+    }
+    if (child.getTranslationY() == translation) {
+      return;
+    }
+
+    child.setTranslationY(translation);
+    offsetDependents(coordinatorLayout, child);
+
+    dragged = translation != 0 && translation != maxOffset;
+    if (!dragged && hidden != (translation != 0)) {
+      hidden = translation != 0;
+      if (null != listener) {
+        listener.onExpandStatusChanged(!hidden, false);
       }
     }
   }
 
   private void ensureOrCancelAnimator(final CoordinatorLayout coordinatorLayout,
-      final BottomNavigationView child) {
+      final BottomNavigationView child, final boolean parallel) {
     if (animator == null) {
       animator = ViewCompat.animate(child);
       animator.setDuration(animationDuration);
       animator.setInterpolator(INTERPOLATOR);
-      animator.setUpdateListener(new ViewPropertyAnimatorUpdateListener() {
+      animatorUpdateListener = new ViewPropertyAnimatorUpdateListener() {
         @Override public void onAnimationUpdate(final View view) {
-          if (null != fabDependentView) {
-            fabDependentView.onDependentViewChanged(coordinatorLayout, child);
-          }
-          if (null != snackbarDependentView) {
-            snackbarDependentView.onDependentViewChanged(coordinatorLayout, child);
-          }
+          offsetDependents(coordinatorLayout, child);
         }
-      });
+      };
     } else {
       animator.cancel();
     }
+
+    animator.setUpdateListener(parallel ? null : animatorUpdateListener);
   }
 
   abstract static class DependentView<V extends View> {
     final V child;
     final MarginLayoutParams layoutParams;
     final int bottomMargin;
-    final int height;
-    final int bottomInset;
+    int height;
+    int bottomInset;
+
+    /**
+     * current offset applied to the child's position, see {@link #setOffset(int)}
+     */
+    private int offset;
+
+    /**
+     * child's top right after the last offset, any other value means it has been laid out again
+     */
+    private int offsetTop = Integer.MIN_VALUE;
+
+    private ObjectAnimator translationAnimator;
 
     DependentView(V child, final int height, final int bottomInset) {
       this.child = child;
@@ -379,11 +631,94 @@ public class BottomNavigationBehavior extends VerticalScrollingBehavior<BottomNa
       this.bottomMargin = layoutParams.bottomMargin;
       this.height = height;
       this.bottomInset = bottomInset;
+      updateMargin();
+    }
+
+    /**
+     * @return the bottom margin which keeps the child above the expanded bar
+     */
+    int getExpandedMargin() {
+      return bottomMargin + height;
+    }
+
+    /**
+     * @return how far the child has to move down for the given bar translation
+     */
+    float getOffset(final float navigationTranslationY) {
+      if (bottomInset > 0) {
+        return Math.max(0, navigationTranslationY - height);
+      }
+      return navigationTranslationY;
+    }
+
+    /**
+     * Called when the bar's height or bottom inset changes. This is the only time the child is
+     * laid out again, the bar's translation is followed through {@link #setOffset(int)}.
+     */
+    void setLayoutValues(final int height, final int bottomInset) {
+      this.height = height;
+      this.bottomInset = bottomInset;
+      updateMargin();
+    }
+
+    private void updateMargin() {
+      final int margin = getExpandedMargin();
+      if (layoutParams.bottomMargin != margin) {
+        layoutParams.bottomMargin = margin;
+        child.requestLayout();
+      }
+    }
+
+    /**
+     * Moves the child down by {@code value} pixels from its laid out position, without a layout
+     * pass. The child's translation is left to the design library, which animates it on its own.
+     *
+     * @return true if the child has been moved
+     */
+    boolean setOffset(final int value) {
+      if (child.getTop() != offsetTop) {
+        // laid out again, which dropped the previous offset
+        offset = 0;
+      }
+
+      final boolean changed = value != offset;
+      if (changed) {
+        ViewCompat.offsetTopAndBottom(child, value - offset);
+        offset = value;
+      }
+      offsetTop = child.getTop();
+      return changed;
+    }
+
+    /**
+     * Animates the child's translation with an animator of its own: the child's animate() one is
+     * shared with the design library and the application, which use it for other properties.
+     */
+    final void animateTranslationY(final float value, final int duration,
+        final Interpolator interpolator) {
+      if (null == translationAnimator) {
+        translationAnimator = ObjectAnimator.ofFloat(child, View.TRANSLATION_Y, value);
+      } else {
+        translationAnimator.cancel();
+        translationAnimator.setFloatValues(value);
+      }
+      translationAnimator.setDuration(duration);
+      translationAnimator.setInterpolator(interpolator);
+      translationAnimator.start();
+    }
+
+    final void cancelTranslationAnimation() {
+      if (null != translationAnimator) {
+        translationAnimator.cancel();
+      }
     }
 
     void onDestroy() {
     }
 
+    /**
+     * Moves the child to follow the bar's current translation.
+     */
     abstract boolean onDependentViewChanged(CoordinatorLayout parent, BottomNavigationView navigation);
   }
 
@@ -391,20 +726,82 @@ public class BottomNavigationBehavior extends VerticalScrollingBehavior<BottomNa
     private static final String TAG =
         BottomNavigationBehavior.TAG + "." + GenericDependentView.class.getSimpleName();
 
+    private static final Property<GenericDependentView, Float> TRANSLATION =
+        new Property<GenericDependentView, Float>(Float.class, "translation") {
+          @Override public Float get(final GenericDependentView dependent) {
+            return dependent.translation;
+          }
+
+          @Override public void set(final GenericDependentView dependent, final Float value) {
+            dependent.setTranslation(value);
+          }
+        };
+
+    /**
+     * part of the child's translation added by the behavior, on top of the application's own
+     */
+    private float translation;
+
+    /**
+     * animates {@link #translation} in the parallel mode, the child's animate() animator belongs
+     * to the application
+     */
+    private ObjectAnimator animator;
+
     GenericDependentView(final View child, final int height, final int bottomInset) {
       super(child, height, bottomInset);
       log(TAG, INFO, "new GenericDependentView(%s)", child.getClass().getSimpleName());
     }
 
+    @Override int getExpandedMargin() {
+      // moved with its translation only
+      return bottomMargin;
+    }
+
+    private float getTranslation(final float navigationTranslationY) {
+      return getOffset(navigationTranslationY) - height;
+    }
+
+    private void setTranslation(final float value) {
+      if (value != translation) {
+        child.setTranslationY(child.getTranslationY() + value - translation);
+        translation = value;
+      }
+    }
+
     @Override void onDestroy() {
+      if (null != animator) {
+        animator.cancel();
+      }
+      setTranslation(0);
     }
 
     @Override boolean onDependentViewChanged(final CoordinatorLayout parent,
         final BottomNavigationView navigation) {
-      log(TAG, VERBOSE, "onDependentViewChanged");
-      layoutParams.bottomMargin = bottomMargin + height;
+      if (null != animator) {
+        animator.cancel();
+      }
+
+      final float value = getTranslation(navigation.getTranslationY());
+      if (value == translation) {
+        return false;
+      }
+      setTranslation(value);
       return true;
     }
+
+    void animateTranslation(final int target, final int duration, final Interpolator interpolator) {
+      final float value = getTranslation(target);
+      if (null == animator) {
+        animator = ObjectAnimator.ofFloat(this, TRANSLATION, value);
+      } else {
+        animator.cancel();
+        animator.setFloatValues(value);
+      }
+      animator.setDuration(duration);
+      animator.setInterpolator(interpolator);
+      animator.start();
+    }
   }
 
   private static class FabDependentView extends DependentView<View> {
@@ -416,20 +813,43 @@ public class BottomNavigationBehavior extends VerticalScrollingBehavior<BottomNa
       log(TAG, INFO, "new FabDependentView");
     }
 
+    /**
+     * true while the button is moved by {@link
+     * #animateTranslation(BottomNavigationView, int, int, Interpolator)} instead of its offset
+     */
+    private boolean translated;
+
     @Override boolean onDependentViewChanged(final CoordinatorLayout parent,
         final BottomNavigationView navigation) {
-      final float t = Math.max(0, navigation.getTranslationY() - height);
+      if (translated) {
+        return false;
+      }
+      return setOffset((int) getOffset(navigation.getTranslationY()));
+    }
 
-      if (bottomInset > 0) {
-        layoutParams.bottomMargin = (int) (bottomMargin + height - t);
-      } else {
-        layoutParams.bottomMargin = (int) (bottomMargin + height - navigation.getTranslationY());
+    void animateTranslation(final BottomNavigationView navigation, final int target,
+        final int duration, final Interpolator interpolator) {
+      if (!translated) {
+        log(TAG, VERBOSE, "switching to translation");
+        translated = true;
+        setOffset(0);
+        child.setTranslationY(getOffset(navigation.getTranslationY()));
+      }
+
+      animateTranslationY(getOffset(target), duration, interpolator);
+    }
+
+    void resetTranslation() {
+      if (translated) {
+        log(TAG, VERBOSE, "switching to offset");
+        translated = false;
+        cancelTranslationAnimation();
+        child.setTranslationY(0);
       }
-      child.requestLayout();
-      return true;
     }
 
     @Override void onDestroy() {
+      cancelTranslationAnimation();
     }
   }
 
@@ -442,6 +862,10 @@ public class BottomNavigationBehavior extends VerticalScrollingBehavior<BottomNa
       super(child, height, bottomInset);
     }
 
+    @Override int getExpandedMargin() {
+      return height;
+    }
+
     @Override boolean onDependentViewChanged(final CoordinatorLayout parent,
         final BottomNavigationView navigation) {
       log(TAG, VERBOSE, "onDependentViewChanged");
@@ -465,10 +889,7 @@ public class BottomNavigationBehavior extends VerticalScrollingBehavior<BottomNa
           snackbarHeight, height, child.getTranslationY(), navigation.getTranslationY(), expanded);
 
       final float maxScroll = Math.max(0, navigation.getTranslationY() - bottomInset);
-      layoutParams.bottomMargin = (int) (height - maxScroll);
-      child.requestLayout();
-
-      return true;
+      return setOffset((int) maxScroll);
     }
 
     @Override void onDestroy() {
@@ -42,6 +42,7 @@ import android.annotation.TargetApi;
 import android.app.Activity;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Rect;
 import android.graphics.Typeface;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.LayerDrawable;
@@ -51,6 +52,8 @@ import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.annotation.IdRes;
 import android.support.annotation.MenuRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.design.widget.CoordinatorLayout;
 import android.support.v4.content.ContextCompat;
 import android.support.v4.view.GravityCompat;
@@ -63,7 +66,6 @@ import android.view.ViewGroup;
 import android.widget.FrameLayout;
 import android.widget.LinearLayout;
 import com.readystatesoftware.systembartint.SystemBarTintManager;
-import java.lang.ref.SoftReference;
 import java.lang.reflect.Constructor;
 import java.util.HashMap;
 import java.util.Map;
@@ -144,6 +146,11 @@ public class BottomNavigationView extends FrameLayout implements OnItemClickList
 
   private MenuParser.Menu pendingMenu;
 
+  /**
+   * Incremented on each menu change, so that late {@link AsyncMenuInflater} results are ignored
+   */
+  private int menuRequest;
+
   /**
    * Default selected index.
    * After the items are populated changing this
@@ -162,9 +169,14 @@ public class BottomNavigationView extends FrameLayout implements OnItemClickList
   private long backgroundColorAnimation;
 
   /**
-   * Optional typeface used for the items' text labels
+   * Typeface used for the items' text labels
+   */
+  @NonNull Typeface typeface = Typeface.DEFAULT;
+
+  /**
+   * Incremented at each typeface change, so that a font loaded late doesn't replace a newer one
    */
-  SoftReference<Typeface> typeface;
+  private int typefaceRequest;
 
   /**
    * Current BottomBehavior assigned from the CoordinatorLayout
@@ -186,8 +198,40 @@ public class BottomNavigationView extends FrameLayout implements OnItemClickList
    */
   private boolean attached;
 
+  /**
+   * Icons are animated by crossfading their pre-rendered variants instead of being tinted
+   */
+  private boolean iconCrossfade;
+
+  /**
+   * The tab layout draws a single ripple instead of one per tab
+   */
+  private boolean sharedRipple;
+
+  /**
+   * The fixed tabs are drawn by a single view instead of one view per tab
+   */
+  private boolean flatTabs;
+
+  /**
+   * The animated tabs and background overlay are rendered into hardware layers
+   */
+  private boolean animationLayers;
+
   private BadgeProvider badgeProvider;
 
+  private TabViewPool tabViewPool;
+
+  /**
+   * Drives the animations of the tabs and their badges
+   */
+  private final RibbonAnimationClock animationClock = new RibbonAnimationClock();
+
+  /**
+   * Bounds of the selected tab, reused by the background color animation
+   */
+  private final Rect tabBounds = new Rect();
+
   public BottomNavigationView(final Context context) {
     this(context, null);
   }
@@ -244,9 +288,113 @@ public class BottomNavigationView extends FrameLayout implements OnItemClickList
     return badgeProvider;
   }
 
+  /**
+   * Switches the icons rendering mode. By default an icon is tinted again at every animation
+   * frame. When enabled, the icon is rendered once in the active color and once in the inactive
+   * color, and the animations crossfade the two bitmaps. This costs two bitmaps per icon, shared
+   * process wide, but nothing per frame.
+   *
+   * @param enabled true to crossfade pre-rendered icons
+   */
+  @SuppressWarnings("unused") public void setIconCrossfadeEnabled(final boolean enabled) {
+    if (iconCrossfade != enabled) {
+      iconCrossfade = enabled;
+      rebuildItems();
+    }
+  }
+
+  public boolean isIconCrossfadeEnabled() {
+    return iconCrossfade;
+  }
+
+  /**
+   * Switches the ripple rendering mode. By default each tab has its own ripple background. When
+   * enabled, the tab layout owns a single ripple and moves it under the touched tab.
+   *
+   * @param enabled true to share a single ripple between the tabs
+   */
+  @SuppressWarnings("unused") public void setSharedRippleEnabled(final boolean enabled) {
+    if (sharedRipple != enabled) {
+      sharedRipple = enabled;
+      rebuildItems();
+    }
+  }
+
+  public boolean isSharedRippleEnabled() {
+    return sharedRipple;
+  }
+
+  /**
+   * Switches the fixed tabs rendering mode. By default each tab is a view of its own. When
+   * enabled, a single view draws all the tabs, and exposes them to the accessibility services as
+   * virtual views. The shifting and tablet menus are not affected. The single view tints its
+   * icons at every animation frame and draws its own ripple under the touched tab, so
+   * {@link #setIconCrossfadeEnabled(boolean)} and {@link #setSharedRippleEnabled(boolean)} are
+   * ignored for the fixed menus while this mode is enabled.
+   *
+   * @param enabled true to draw the fixed tabs from a single view
+   */
+  @SuppressWarnings("unused") public void setFlatTabsEnabled(final boolean enabled) {
+    if (flatTabs != enabled) {
+      flatTabs = enabled;
+      rebuildItems();
+    }
+  }
+
+  public boolean isFlatTabsEnabled() {
+    return flatTabs;
+  }
+
+  /**
+   * Renders the background overlay into a hardware layer while its color change is animated, so
+   * the frames only changing its alpha or reveal clip don't draw it again. The tabs are left out,
+   * their content changes on every frame. Disabled by default.
+   *
+   * @param enabled true to promote the background overlay to a hardware layer
+   */
+  @SuppressWarnings("unused") public void setAnimationLayersEnabled(final boolean enabled) {
+    animationLayers = enabled;
+  }
+
+  public boolean isAnimationLayersEnabled() {
+    return animationLayers;
+  }
+
+  /**
+   * Creates the tab views again, as the current ones can't switch rendering mode.
+   */
+  private void rebuildItems() {
+    if (menu != null) {
+      final MenuParser.Menu current = menu;
+      defaultSelectedIndex = getSelectedItem();
+      menu = null;
+      setMenu(current);
+    }
+  }
+
+  /**
+   * Returns the pool keeping the tab views removed by menu changes. Unless a shared pool is set,
+   * each navigation view has its own.
+   */
+  public TabViewPool getTabViewPool() {
+    if (tabViewPool == null) {
+      tabViewPool = new TabViewPool();
+    }
+    return tabViewPool;
+  }
+
+  /**
+   * Shares a pool of tab views with other navigation views, for instance the ones of the
+   * fragments of an Activity. The pool drops the views of an Activity when it is destroyed.
+   *
+   * @param pool the pool to use, or null to use a new one
+   */
+  @SuppressWarnings("unused") public void setTabViewPool(@Nullable final TabViewPool pool) {
+    this.tabViewPool = pool;
+  }
+
   private void initialize(final Context context, final AttributeSet attrs, final int defStyleAttr,
       final int defStyleRes) {
-    typeface = new SoftReference<>(Typeface.DEFAULT);
 
     TypedArray array =
         context.obtainStyledAttributes(attrs, R.styleable.BottomNavigationView, defStyleAttr,
@@ -256,7 +404,29 @@ public class BottomNavigationView extends FrameLayout implements OnItemClickList
       throw new IllegalArgumentException("A valid menu must be set in xml");
     }
 
-    pendingMenu = MenuParser.inflateMenu(context, menuResId);
+    iconCrossfade =
+        array.getBoolean(R.styleable.BottomNavigationView_ribbon_iconCrossfade, false);
+    sharedRipple = array.getBoolean(R.styleable.BottomNavigationView_ribbon_sharedRipple, false);
+    flatTabs = array.getBoolean(R.styleable.BottomNavigationView_ribbon_flatTabs, false);
+    animationLayers =
+        array.getBoolean(R.styleable.BottomNavigationView_ribbon_animationLayers, false);
+
+    final String typefacePath = array.getString(R.styleable.BottomNavigationView_ribbon_typeface);
+    if (typefacePath != null && !isInEditMode()) {
+      setDefaultTypeface(typefacePath);
+    }
+
+    final boolean menuAsync =
+        array.getBoolean(R.styleable.BottomNavigationView_ribbon_menuAsync, false);
+    pendingMenu = MenuCache.peek(context, menuResId);
+    if (pendingMenu == null) {
+      if (menuAsync && !isInEditMode()) {
+        new AsyncMenuInflater(context).inflate(menuResId, this);
+      } else {
+        pendingMenu = requireMenu(MenuCache.obtain(context, menuResId), menuResId);
+      }
+    }
+
     badgeProvider = parseBadgeProvider(this, context,
         array.getString(R.styleable.BottomNavigationView_ribbon_badgeProvider));
     array.recycle();
@@ -313,8 +483,7 @@ public class BottomNavigationView extends FrameLayout implements OnItemClickList
   @SuppressWarnings("unused")
   public void setSelectedItem(final int position, final boolean animate) {
     if (itemsContainer != null) {
-      setSelectedItemInternal(itemsContainer, ((ViewGroup) itemsContainer).getChildAt(position),
-          position, animate, false);
+      setSelectedItemInternal(itemsContainer, position, animate, false);
     } else {
       defaultSelectedIndex = position;
     }
@@ -346,13 +515,79 @@ public class BottomNavigationView extends FrameLayout implements OnItemClickList
     this.listener = listener;
   }
 
+  /**
+   * Replaces the current menu. Menus are read from {@link MenuCache}, so switching between
+   * menus preloaded with {@link MenuCache#preload(Context, int...)} doesn't parse any xml.
+   *
+   * @param menuResId the new menu resource
+   */
   @SuppressWarnings("unused") public void setMenuItems(@MenuRes final int menuResId) {
     defaultSelectedIndex = 0;
+    onMenuInflated(newMenuRequest(),
+        requireMenu(MenuCache.obtain(getContext(), menuResId), menuResId));
+  }
+
+  /**
+   * Fails the same way whether the menu has been read synchronously or by
+   * {@link AsyncMenuInflater}.
+   */
+  /* package */ static MenuParser.Menu requireMenu(@Nullable final MenuParser.Menu menu,
+      @MenuRes final int menuResId) {
+    if (menu == null) {
+      throw new IllegalArgumentException(
+          "Could not read menu resource 0x" + Integer.toHexString(menuResId));
+    }
+    return menu;
+  }
+
+  /**
+   * Same as {@link #setMenuItems(int)}, but the menu is read on a background thread. The current
+   * menu stays visible until the new one is ready.
+   *
+   * @param menuResId the new menu resource
+   */
+  @SuppressWarnings("unused") public void setMenuItemsAsync(@MenuRes final int menuResId) {
+    defaultSelectedIndex = 0;
+    final MenuParser.Menu menu = MenuCache.peek(getContext(), menuResId);
+    if (menu != null) {
+      onMenuInflated(newMenuRequest(), menu);
+    } else {
+      new AsyncMenuInflater(getContext()).inflate(menuResId, this);
+    }
+  }
+
+  /**
+   * Replaces the current menu with one built at runtime. If the new menu only differs by its
+   * items, the tabs are updated in place: only the added, removed or modified items are
+   * rebuilt and the selected item stays selected.
+   *
+   * @param menu the new menu
+   * @see RibbonMenu.Builder
+   */
+  @SuppressWarnings("unused") public void setMenu(@NonNull final RibbonMenu menu) {
+    defaultSelectedIndex = 0;
+    onMenuInflated(newMenuRequest(), menu.toMenu(getContext()));
+  }
+
+  /* package */ RibbonAnimationClock getAnimationClock() {
+    return animationClock;
+  }
+
+  /* package */ int newMenuRequest() {
+    return ++menuRequest;
+  }
+
+  /* package */ void onMenuInflated(final int request, final MenuParser.Menu menu) {
+    log(TAG, INFO, "onMenuInflated: %d, %s", request, menu);
+    if (request != menuRequest) {
+      return;
+    }
+
     if (isAttachedToWindow()) {
-      setMenu(MenuParser.inflateMenu(getContext(), menuResId));
+      setMenu(menu);
       pendingMenu = null;
     } else {
-      pendingMenu = MenuParser.inflateMenu(getContext(), menuResId);
+      pendingMenu = menu;
     }
   }
 
@@ -473,6 +708,19 @@ public class BottomNavigationView extends FrameLayout implements OnItemClickList
     }
   }
 
+  @Override protected void onDetachedFromWindow() {
+    log(TAG, INFO, "onDetachedFromWindow");
+    super.onDetachedFromWindow();
+    animationClock.endAll();
+
+    if (tabViewPool != null) {
+      final Activity activity = MiscUtils.getActivity(getContext());
+      if (activity == null || activity.isFinishing() || activity.isChangingConfigurations()) {
+        tabViewPool.clear(getContext());
+      }
+    }
+  }
+
   @SuppressWarnings("unused") public CoordinatorLayout.Behavior getBehavior() {
     if (mBehavior == null) {
       if (getLayoutParams() instanceof CoordinatorLayout.LayoutParams) {
@@ -482,19 +730,25 @@ public class BottomNavigationView extends FrameLayout implements OnItemClickList
     return mBehavior;
   }
 
-  private void setMenu(MenuParser.Menu menu) {
-    log(TAG, INFO, "setMenu: %s", menu);
-    this.menu = menu;
+  private void setMenu(final MenuParser.Menu newMenu) {
+    log(TAG, INFO, "setMenu: %s", newMenu);
+    final MenuParser.Menu oldMenu = this.menu;
+    // cached menus are shared, so the tablet mode is applied on a copy
+    this.menu = newMenu != null ? newMenu.withTabletMode(isTablet(gravity)) : null;
     if (menu != null) {
       if (menu.getActionCount() < 3 || menu.getActionCount() > 5) {
         throw new IllegalArgumentException(
             "BottomNavigation expects 3 to 5 items. " + menu.getActionCount() + " found");
       }
 
-      menu.setTabletMode(isTablet(gravity));
+      final RibbonStyle style = menu.getStyle(getResources());
+      if (canUpdate(oldMenu, menu, style)) {
+        updateItems(oldMenu, menu, style);
+        return;
+      }
 
-      initializeBackgroundColor(menu);
-      initializeContainer(menu);
+      initializeBackgroundColor(style);
+      initializeContainer(menu, style);
       initializeItems(menu);
     }
 
@@ -528,26 +782,23 @@ public class BottomNavigationView extends FrameLayout implements OnItemClickList
     setPadding(0, paddingTop, 0, 0);
   }
 
-  private void initializeBackgroundColor(final MenuParser.Menu menu) {
+  private void initializeBackgroundColor(final RibbonStyle style) {
     log(TAG, INFO, "initializeBackgroundColor");
 
-    final int color = menu.getBackground();
+    final int color = style.background;
     log(TAG, VERBOSE, "background: %x", color);
     backgroundDrawable.setColor(color);
   }
 
-  private void initializeContainer(final MenuParser.Menu menu) {
+  private void initializeContainer(final MenuParser.Menu menu, final RibbonStyle style) {
     log(TAG, INFO, "initializeContainer");
     if (itemsContainer != null) {
-      if (menu.isTablet() && !(itemsContainer instanceof TabletLayout)) {
-        removeView((View) itemsContainer);
-        itemsContainer = null;
-      } else if ((menu.isShifting() && !(itemsContainer instanceof ShiftingTabLayout))
-          || (!menu.isShifting() && !(itemsContainer instanceof FixedTabLayout))) {
+      // the tab views go back to the pool, whether the container is kept or not
+      itemsContainer.removeAll();
+
+      if (itemsContainer.getClass() != getContainerClass(menu)) {
         removeView((View) itemsContainer);
         itemsContainer = null;
-      } else {
-        itemsContainer.removeAll();
       }
     }
 
@@ -556,12 +807,15 @@ public class BottomNavigationView extends FrameLayout implements OnItemClickList
           new LinearLayout.LayoutParams(menu.isTablet() ? defaultWidth : MATCH_PARENT,
               menu.isTablet() ? MATCH_PARENT : defaultHeight);
 
-      if (menu.isTablet()) {
-        itemsContainer = new TabletLayout(getContext());
-      } else if (menu.isShifting()) {
-        itemsContainer = new ShiftingTabLayout(getContext());
+      final Class<? extends BottomTabLayout> containerClass = getContainerClass(menu);
+      if (containerClass == TabletLayout.class) {
+        itemsContainer = new TabletLayout(getContext(), style);
+      } else if (containerClass == ShiftingTabLayout.class) {
+        itemsContainer = new ShiftingTabLayout(getContext(), style);
+      } else if (containerClass == FlatTabLayout.class) {
+        itemsContainer = new FlatTabLayout(getContext(), style);
       } else {
-        itemsContainer = new FixedTabLayout(getContext());
+        itemsContainer = new FixedTabLayout(getContext(), style);
       }
 
       // force the layout manager ID
@@ -571,6 +825,21 @@ public class BottomNavigationView extends FrameLayout implements OnItemClickList
     }
   }
 
+  /**
+   * Returns the tab layout displaying {@code menu}. The flat layout only renders fixed tabs, the
+   * shifting and tablet menus keep their view based layouts.
+   */
+  private Class<? extends BottomTabLayout> getContainerClass(final MenuParser.Menu menu) {
+    if (menu.isTablet()) {
+      return TabletLayout.class;
+    } else if (menu.isShifting()) {
+      return ShiftingTabLayout.class;
+    } else if (flatTabs) {
+      return FlatTabLayout.class;
+    }
+    return FixedTabLayout.class;
+  }
+
   private void initializeItems(final MenuParser.Menu menu) {
     log(TAG, INFO, "initializeItems(%d)", defaultSelectedIndex);
 
@@ -583,14 +852,45 @@ public class BottomNavigationView extends FrameLayout implements OnItemClickList
     }
   }
 
+  /**
+   * Returns true if the tab views displaying {@code oldMenu} can be reused for {@code newMenu}.
+   */
+  private boolean canUpdate(final MenuParser.Menu oldMenu, final MenuParser.Menu newMenu,
+      final RibbonStyle style) {
+    return itemsContainer != null
+        && oldMenu != null
+        && oldMenu.isTablet() == newMenu.isTablet()
+        && oldMenu.isShifting() == newMenu.isShifting()
+        && oldMenu.getStyle(getResources()).equals(style);
+  }
+
+  /**
+   * Applies the differences between the two menus to the current tab views, keeping the selected
+   * item if it is still part of the menu.
+   */
+  private void updateItems(final MenuParser.Menu oldMenu, final MenuParser.Menu newMenu,
+      final RibbonStyle style) {
+    final int index = MenuDiff.selectedIndex(oldMenu, itemsContainer.getSelectedItem(), newMenu);
+    log(TAG, INFO, "updateItems(%d)", index);
+
+    itemsContainer.update(newMenu, index);
+
+    final ActionTab item = newMenu.getActionItemAt(index);
+    if (!newMenu.isTablet() && item.hasColor()) {
+      backgroundDrawable.setColor(item.getColor());
+    } else {
+      backgroundDrawable.setColor(style.background);
+    }
+  }
+
   @Override public void onItemClick(final BottomTabLayout parent, final View view, final int index,
       boolean animate) {
     log(TAG, INFO, "onItemClick: %d", index);
-    setSelectedItemInternal(parent, view, index, animate, true);
+    setSelectedItemInternal(parent, index, animate, true);
   }
 
-  private void setSelectedItemInternal(final BottomTabLayout container, final View view,
-      final int index, final boolean animate, final boolean fromUser) {
+  private void setSelectedItemInternal(final BottomTabLayout container, final int index,
+      final boolean animate, final boolean fromUser) {
 
     final ActionTab item = menu.getActionItemAt(index);
 
@@ -599,10 +899,11 @@ public class BottomNavigationView extends FrameLayout implements OnItemClickList
 
       if (!menu.isTablet() && item.hasColor()) {
         if (animate) {
-          AnimUtil.animate(this, view, backgroundOverlay, backgroundDrawable, item.getColor(),
+          container.getTabBounds(index, tabBounds);
+          AnimUtil.animate(this, tabBounds, backgroundOverlay, backgroundDrawable, item.getColor(),
               backgroundColorAnimation);
         } else {
-          MiscUtils.switchColor(this, view, backgroundOverlay, backgroundDrawable, item.getColor());
+          MiscUtils.switchColor(this, backgroundOverlay, backgroundDrawable, item.getColor());
         }
       }
 
@@ -616,8 +917,44 @@ public class BottomNavigationView extends FrameLayout implements OnItemClickList
     }
   }
 
-  public void setDefaultTypeface(final Typeface typeface) {
-    this.typeface = new SoftReference<>(typeface);
+  public void setDefaultTypeface(@NonNull final Typeface typeface) {
+    typefaceRequest++;
+    setTypefaceInternal(typeface);
+  }
+
+  /**
+   * Same as {@link #setDefaultTypeface(Typeface)}, with a font read from the assets on a
+   * background thread. The current typeface stays visible until the font is loaded, then all the
+   * tabs switch to it at once.
+   *
+   * @param path the font path in the assets
+   * @see RibbonTypefaces#prewarm(Context, String...)
+   */
+  public void setDefaultTypeface(@NonNull final String path) {
+    final int request = ++typefaceRequest;
+    final Typeface loaded = RibbonTypefaces.peek(path);
+    if (loaded != null) {
+      setTypefaceInternal(loaded);
+      return;
+    }
+
+    RibbonTypefaces.load(getContext(), path, new RibbonTypefaces.Callback() {
+      @Override public void onTypefaceLoaded(@NonNull final String path,
+          @Nullable final Typeface typeface) {
+        if (request == typefaceRequest && typeface != null) {
+          setTypefaceInternal(typeface);
+        }
+      }
+    });
+  }
+
+  private void setTypefaceInternal(final Typeface typeface) {
+    if (this.typeface != typeface) {
+      this.typeface = typeface;
+      if (itemsContainer != null) {
+        itemsContainer.setTypeface(typeface);
+      }
+    }
   }
 
   public void setDefaultSelectedIndex(final int defaultSelectedIndex) {
@@ -627,10 +964,7 @@ public class BottomNavigationView extends FrameLayout implements OnItemClickList
   public void invalidateBadge(final int itemId) {
     log(TAG, INFO, "invalidateBadge: %d", itemId);
     if (null != itemsContainer) {
-      final ActionTabView actionTabView = (ActionTabView) itemsContainer.findViewById(itemId);
-      if (null != actionTabView) {
-        actionTabView.invalidateBadge();
-      }
+      itemsContainer.invalidateBadge(itemId);
     }
   }
 
@@ -38,6 +38,8 @@
 
 package im.ene.ribbon;
 
+import android.graphics.Rect;
+import android.graphics.Typeface;
 import android.support.annotation.IdRes;
 import android.support.annotation.NonNull;
 import android.view.View;
@@ -54,6 +56,27 @@ interface BottomTabLayout {
 
   void populate(@NonNull MenuParser.Menu menu);
 
+  /**
+   * Replaces the displayed menu by a compatible one, same mode and same {@link RibbonStyle},
+   * reusing the tab views of the items which are still part of it.
+   */
+  void update(@NonNull MenuParser.Menu menu, int selectedIndex);
+
+  /**
+   * Reads the current bounds of the tab at {@code index}, relative to the layout.
+   */
+  void getTabBounds(int index, @NonNull Rect outRect);
+
+  /**
+   * Reloads the badge of the item with the passed id.
+   */
+  void invalidateBadge(@IdRes int itemId);
+
+  /**
+   * Applies the typeface to the titles of all the tabs, which are then laid out once.
+   */
+  void setTypeface(@NonNull Typeface typeface);
+
   void setLayoutParams(ViewGroup.LayoutParams params);
 
   void setOnItemClickListener(OnItemClickListener listener);
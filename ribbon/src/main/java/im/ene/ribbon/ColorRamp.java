@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alessandro Crugnola
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package im.ene.ribbon;
+
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+
+/**
+ * Colors between the inactive and the active color of a menu, computed once so that the tab
+ * animations don't allocate anything per frame: neither boxed colors, as {@code ArgbEvaluator}
+ * does, nor color filters.
+ */
+final class ColorRamp {
+
+  /**
+   * Number of steps between the inactive and the active color
+   */
+  static final int STEPS = 64;
+
+  private final int[] colors = new int[STEPS + 1];
+  private final ColorFilter[] filters = new ColorFilter[STEPS + 1];
+
+  ColorRamp(final int colorInactive, final int colorActive) {
+    for (int i = 0; i <= STEPS; i++) {
+      colors[i] = blend(colorInactive, colorActive, (float) i / STEPS);
+      filters[i] = new PorterDuffColorFilter(colors[i], PorterDuff.Mode.SRC_ATOP);
+    }
+  }
+
+  /**
+   * Returns the color at the passed fraction, 0 being the inactive color and 1 the active one.
+   */
+  int getColor(final float fraction) {
+    return colors[step(fraction)];
+  }
+
+  /**
+   * Returns a {@link PorterDuff.Mode#SRC_ATOP} filter of {@link #getColor(float)}.
+   */
+  ColorFilter getColorFilter(final float fraction) {
+    return filters[step(fraction)];
+  }
+
+  private static int step(final float fraction) {
+    return Math.round(Math.max(0f, Math.min(1f, fraction)) * STEPS);
+  }
+
+  /**
+   * Interpolates each ARGB component, as {@code ArgbEvaluator} does, without boxing.
+   */
+  static int blend(final int from, final int to, final float fraction) {
+    final int a = Color.alpha(from);
+    final int r = Color.red(from);
+    final int g = Color.green(from);
+    final int b = Color.blue(from);
+    return Color.argb(a + (int) ((Color.alpha(to) - a) * fraction),
+        r + (int) ((Color.red(to) - r) * fraction), g + (int) ((Color.green(to) - g) * fraction),
+        b + (int) ((Color.blue(to) - b) * fraction));
+  }
+}
@@ -38,19 +38,10 @@
 
 package im.ene.ribbon;
 
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
-import android.animation.ValueAnimator;
 import android.annotation.SuppressLint;
-import android.content.res.Resources;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.PorterDuff;
-import android.support.v4.view.ViewCompat;
-import android.view.animation.DecelerateInterpolator;
-import android.view.animation.Interpolator;
-import proguard.annotation.Keep;
 
 import static android.util.Log.DEBUG;
 import static android.util.Log.INFO;
@@ -61,10 +52,8 @@ public class FixedActionTabView extends ActionTabView {
 
   private static final String TAG = FixedActionTabView.class.getSimpleName();
   private final int iconSize;
-  private int centerY;
-  private final Interpolator interpolator = new DecelerateInterpolator();
+  private final int centerY;
   private float textWidth;
-  private long animationDuration;
   private final int colorActive;
   private final int colorInactive;
 
@@ -75,6 +64,7 @@ public class FixedActionTabView extends ActionTabView {
   private final int textSizeInactive;
 
   private static final float TEXT_SCALE_ACTIVE = 1.1666666667f;
+
   private float canvasTextScale;
   private float iconTranslation;
   private int textCenterX;
@@ -84,80 +74,37 @@ public class FixedActionTabView extends ActionTabView {
   private float textY;
 
   public FixedActionTabView(final BottomNavigationView parent, boolean expanded,
-      final MenuParser.Menu menu) {
-    super(parent, expanded, menu);
-
-    final Resources res = getResources();
-    this.paddingTopActive = res.getDimensionPixelSize(R.dimen.ribbon_fixed_active_item_padding_top);
-    this.paddingTopInactive =
-        res.getDimensionPixelSize(R.dimen.ribbon_fixed_inactive_item_padding_top);
-    this.paddingBottom = res.getDimensionPixelSize(R.dimen.ribbon_fixed_item_padding_bottom);
-    this.paddingHorizontal = res.getDimensionPixelSize(R.dimen.ribbon_fixed_item_padding_horizontal);
-    this.textSizeInactive = res.getDimensionPixelSize(R.dimen.ribbon_fixed_inactive_item_text_size);
-    this.iconSize = res.getDimensionPixelSize(R.dimen.ribbon_fixed_item_icon_size);
-
-    this.animationDuration = menu.getItemAnimationDuration();
-    this.colorActive = menu.getColorActive();
-    this.colorInactive = menu.getColorInactive();
+      final RibbonStyle style) {
+    super(parent, expanded, style);
+
+    this.paddingTopActive = style.fixedActiveItemPaddingTop;
+    this.paddingTopInactive = style.fixedInactiveItemPaddingTop;
+    this.paddingBottom = style.fixedItemPaddingBottom;
+    this.paddingHorizontal = style.fixedItemPaddingHorizontal;
+    this.textSizeInactive = style.fixedInactiveItemTextSize;
+    this.iconSize = style.fixedItemIconSize;
+
+    this.colorActive = style.colorActive;
+    this.colorInactive = style.colorInactive;
     this.centerY = paddingTopActive;
-    this.canvasTextScale = expanded ? TEXT_SCALE_ACTIVE : 1f;
-    this.iconTranslation = expanded ? 0 : (paddingTopInactive - paddingTopActive);
 
     log(TAG, DEBUG, "colors: %x, %x", colorInactive, colorActive);
 
-    this.textPaint.setColor(Color.WHITE);
     this.textPaint.setHinting(Paint.HINTING_ON);
     this.textPaint.setLinearText(true);
     this.textPaint.setSubpixelText(true);
     this.textPaint.setTextSize(textSizeInactive);
-    this.textPaint.setColor(expanded ? colorActive : colorInactive);
-  }
-
-  @Override
-  protected void onStatusChanged(final boolean expanded, final int size, final boolean animate) {
-    if (!animate) {
-      updateLayoutOnAnimation(1, expanded);
-      setIconTranslation(expanded ? 0 : (paddingTopInactive - paddingTopActive));
-      return;
-    }
-
-    final AnimatorSet set = new AnimatorSet();
-    set.setDuration(animationDuration);
-    set.setInterpolator(interpolator);
-
-    final ValueAnimator textScaleAnimator =
-        ObjectAnimator.ofFloat(this, "textScale", expanded ? TEXT_SCALE_ACTIVE : 1);
-
-    textScaleAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-      @Override public void onAnimationUpdate(final ValueAnimator animation) {
-        final float fraction = animation.getAnimatedFraction();
-        updateLayoutOnAnimation(fraction, expanded);
-      }
-    });
-
-    final ValueAnimator iconTranslationAnimator = ObjectAnimator.ofFloat(this, "iconTranslation",
-        expanded ? 0 : (paddingTopInactive - paddingTopActive));
-
-    set.playTogether(textScaleAnimator, iconTranslationAnimator);
-    set.start();
+    onPositionChanged(getPosition());
   }
 
-  private void updateLayoutOnAnimation(final float fraction, final boolean expanded) {
-    if (expanded) {
-      final int color = (Integer) evaluator.evaluate(fraction, colorInactive, colorActive);
-      icon.mutate().setColorFilter(color, PorterDuff.Mode.SRC_ATOP);
-      textPaint.setColor(color);
-      icon.setAlpha(Color.alpha(color));
-    } else {
-      final int color = (Integer) evaluator.evaluate(fraction, colorActive, colorInactive);
-      icon.mutate().setColorFilter(color, PorterDuff.Mode.SRC_ATOP);
-      textPaint.setColor(color);
-      icon.setAlpha(Color.alpha(color));
+  @Override protected void onPositionChanged(final float position) {
+    final int color = colorRamp.getColor(position);
+    if (icon != null) {
+      setIconState(position, Color.alpha(color));
     }
-  }
-
-  final int getCurrentColor() {
-    return isExpanded() ? colorActive : colorInactive;
+    textPaint.setColor(color);
+    canvasTextScale = 1 + (TEXT_SCALE_ACTIVE - 1) * position;
+    iconTranslation = (1 - position) * (paddingTopInactive - paddingTopActive);
   }
 
   @Override
@@ -166,17 +113,16 @@ public class FixedActionTabView extends ActionTabView {
     log(TAG, INFO, "onLayout(%b)", changed);
     super.onLayout(changed, left, top, right, bottom);
 
-    if (this.icon == null) {
-      this.icon = getAction().getIcon(getContext());
-      this.icon.mutate().setColorFilter(getCurrentColor(), PorterDuff.Mode.SRC_ATOP);
-      this.icon.setAlpha(Color.alpha(getCurrentColor()));
-      this.icon.setBounds(0, 0, iconSize, iconSize);
+    final boolean iconChanged = this.icon == null;
+    if (iconChanged) {
+      loadIcon(iconSize);
+      setIconState(getPosition(), Color.alpha(colorRamp.getColor(getPosition())));
     }
 
-    if (changed) {
+    if (changed || iconChanged) {
       int w = right - left;
       centerX = (w - iconSize) / 2;
-      icon.setBounds(centerX, centerY, centerX + iconSize, centerY + iconSize);
+      setIconBounds(centerX, centerY, centerX + iconSize, centerY + iconSize);
     }
 
     if (textDirty || changed) {
@@ -191,7 +137,7 @@ public class FixedActionTabView extends ActionTabView {
     final int width = getWidth();
     final int height = getHeight();
 
-    textWidth = textPaint.measureText(getAction().getTitle());
+    textWidth = TextCache.measure(textPaint, getAction().getTitle());
     textX = paddingHorizontal + (((width - paddingHorizontal * 2) - textWidth) / 2);
     textY = height - paddingBottom;
     textCenterX = width / 2;
@@ -203,7 +149,7 @@ public class FixedActionTabView extends ActionTabView {
 
     canvas.save();
     canvas.translate(0, iconTranslation);
-    icon.draw(canvas);
+    drawIcon(canvas);
     drawBadge(canvas);
     canvas.restore();
 
@@ -212,33 +158,4 @@ public class FixedActionTabView extends ActionTabView {
     canvas.drawText(getAction().getTitle(), textX, textY, textPaint);
     canvas.restore();
   }
-
-  @SuppressWarnings("unused") @Keep public int getCenterY() {
-    return centerY;
-  }
-
-  @SuppressWarnings("unused") @Keep public void setCenterY(int value) {
-    centerY = value;
-    ViewCompat.postInvalidateOnAnimation(this);
-  }
-
-  @SuppressWarnings("unused") @Keep public void setTextScale(final float value) {
-    canvasTextScale = value;
-    ViewCompat.postInvalidateOnAnimation(this);
-  }
-
-  @SuppressWarnings("unused") @Keep public float getTextScale() {
-    return canvasTextScale;
-  }
-
-  // Keep in proguard for ObjectAnimator
-  @Keep @SuppressWarnings("unused") public void setIconTranslation(final float iconTranslation) {
-    this.iconTranslation = iconTranslation;
-    ViewCompat.postInvalidateOnAnimation(this);
-  }
-
-  // Keep in proguard for ObjectAnimator
-  @Keep @SuppressWarnings("unused") public float getIconTranslation() {
-    return iconTranslation;
-  }
 }
@@ -39,14 +39,19 @@
 package im.ene.ribbon;
 
 import android.content.Context;
-import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
 import android.support.annotation.NonNull;
 import android.util.Log;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.LinearLayout;
+import java.util.ArrayList;
+import java.util.List;
 
-public class FixedTabLayout extends ViewGroup implements BottomTabLayout {
+public class FixedTabLayout extends ViewGroup implements BottomTabLayout, SharedRipple.Host {
   private static final String TAG = FixedTabLayout.class.getSimpleName();
   private final int maxActiveItemWidth;
   private final int minActiveItemWidth;
@@ -54,21 +59,29 @@ public class FixedTabLayout extends ViewGroup implements BottomTabLayout {
   private boolean hasFrame;
   private int selectedIndex;
   OnItemClickListener listener;
+  private SharedRipple sharedRipple;
   private int itemFinalWidth;
   private MenuParser.Menu menu;
 
-  public FixedTabLayout(final Context context) {
+  public FixedTabLayout(final Context context, final RibbonStyle style) {
     super(context);
     totalChildrenSize = 0;
     selectedIndex = 0;
 
-    final Resources res = getResources();
-    maxActiveItemWidth = res.getDimensionPixelSize(R.dimen.ribbon_fixed_active_item_max_width);
-    minActiveItemWidth = res.getDimensionPixelSize(R.dimen.ribbon_fixed_active_item_min_width);
+    maxActiveItemWidth = style.fixedActiveItemMaxWidth;
+    minActiveItemWidth = style.fixedActiveItemMinWidth;
   }
 
   @Override public void removeAll() {
+    final BottomNavigationView parent = (BottomNavigationView) getParent();
+    final ActionTabView[] views = new ActionTabView[getChildCount()];
+    for (int i = 0; i < views.length; i++) {
+      views[i] = (ActionTabView) getChildAt(i);
+    }
     removeAllViews();
+    for (ActionTabView view : views) {
+      parent.getTabViewPool().recycle(view);
+    }
     totalChildrenSize = 0;
     itemFinalWidth = 0;
     selectedIndex = 0;
@@ -109,6 +122,47 @@ public class FixedTabLayout extends ViewGroup implements BottomTabLayout {
     }
   }
 
+  @Override public void getTabBounds(final int index, @NonNull final Rect outRect) {
+    final View child = getChildAt(index);
+    outRect.set(child.getLeft(), child.getTop(), child.getRight(), child.getBottom());
+  }
+
+  @Override public void invalidateBadge(final int itemId) {
+    final View child = findViewById(itemId);
+    if (child instanceof ActionTabView) {
+      ((ActionTabView) child).invalidateBadge();
+    }
+  }
+
+  @Override public void setTypeface(@NonNull final Typeface typeface) {
+    for (int i = 0; i < getChildCount(); i++) {
+      ((ActionTabView) getChildAt(i)).setTypeface(typeface);
+    }
+  }
+
+  @Override public SharedRipple getSharedRipple() {
+    return sharedRipple;
+  }
+
+  @Override protected void dispatchDraw(final Canvas canvas) {
+    SharedRipple.draw(sharedRipple, canvas);
+    super.dispatchDraw(canvas);
+  }
+
+  @Override protected boolean verifyDrawable(@NonNull final Drawable who) {
+    return super.verifyDrawable(who) || SharedRipple.verifyDrawable(sharedRipple, who);
+  }
+
+  @Override public void childDrawableStateChanged(final View child) {
+    super.childDrawableStateChanged(child);
+    SharedRipple.onChildStateChanged(sharedRipple, child);
+  }
+
+  @Override public void jumpDrawablesToCurrentState() {
+    super.jumpDrawablesToCurrentState();
+    SharedRipple.jumpToCurrentState(sharedRipple);
+  }
+
   private void setChildFrame(View child, int left, int top, int width, int height) {
     Log.v(TAG, "setChildFrame: " + left + ", " + top + ", " + width + ", " + height);
     child.layout(left, top, left + width, top + height);
@@ -159,60 +213,122 @@ public class FixedTabLayout extends ViewGroup implements BottomTabLayout {
     this.listener = listener;
   }
 
-  private void populateInternal(@NonNull final MenuParser.Menu menu) {
-    Log.d(TAG, "populateInternal");
+  @Override public void update(@NonNull final MenuParser.Menu menu, final int selectedIndex) {
+    Log.i(TAG, "update: " + menu);
+    if (!hasFrame || getChildCount() == 0) {
+      this.selectedIndex = selectedIndex;
+      populate(menu);
+      return;
+    }
 
     final BottomNavigationView parent = (BottomNavigationView) getParent();
+    final RibbonStyle style = menu.getStyle(getResources());
+    sharedRipple = SharedRipple.update(sharedRipple, this, parent.isSharedRippleEnabled(),
+        style.rippleColor);
+    final ActionTab[] actions = menu.getActions();
+    final List<ActionTabView> removed = new ArrayList<>();
+    final ActionTabView[] views = MenuDiff.match(this, actions, removed);
+    final int width = computeItemWidth(parent.getWidth(), actions.length);
+
+    detachAllViewsFromParent();
+    for (int i = 0; i < actions.length; i++) {
+      final boolean expanded = i == selectedIndex;
+      ActionTabView view = views[i];
+      if (view == null) {
+        view = newTabView(parent, style, actions[i], expanded, width);
+        addViewInLayout(view, i, view.getLayoutParams(), true);
+      } else {
+        view.setExpanded(expanded, 0, false);
+        if (view.getAction() != actions[i]) {
+          view.setAction(actions[i]);
+        }
+        view.getLayoutParams().width = width;
+        attachViewToParent(view, i, view.getLayoutParams());
+      }
+    }
+
+    for (ActionTabView view : removed) {
+      removeDetachedView(view, false);
+      parent.getTabViewPool().recycle(view);
+    }
+
+    this.selectedIndex = selectedIndex;
+    this.itemFinalWidth = width;
+    this.totalChildrenSize = 0;
+    requestLayout();
+    invalidate();
+  }
+
+  private int computeItemWidth(final int screenWidth, final int count) {
     final float density = getResources().getDisplayMetrics().density;
-    final int screenWidth = parent.getWidth();
 
     Log.v(TAG, "density: " + density);
     Log.v(TAG, "screenWidth: " + screenWidth);
     Log.v(TAG, "screenWidth(dp): " + (screenWidth / density));
 
-    int proposedWidth = Math.min(Math.max(screenWidth / menu.getActionCount(), minActiveItemWidth),
-        maxActiveItemWidth);
+    int proposedWidth =
+        Math.min(Math.max(screenWidth / count, minActiveItemWidth), maxActiveItemWidth);
     Log.v(TAG, "proposedWidth: " + proposedWidth);
     Log.v(TAG, "proposedWidth(dp): " + proposedWidth / density);
 
-    if (proposedWidth * menu.getActionCount() > screenWidth) {
-      proposedWidth = screenWidth / menu.getActionCount();
+    if (proposedWidth * count > screenWidth) {
+      proposedWidth = screenWidth / count;
     }
 
     Log.v(TAG, "active size: " + maxActiveItemWidth + ", " + minActiveItemWidth);
     Log.v(TAG,
         "active size (dp): " + maxActiveItemWidth / density + ", " + minActiveItemWidth / density);
+    return proposedWidth;
+  }
+
+  private void populateInternal(@NonNull final MenuParser.Menu menu) {
+    Log.d(TAG, "populateInternal");
+
+    final BottomNavigationView parent = (BottomNavigationView) getParent();
+    final RibbonStyle style = menu.getStyle(getResources());
+    sharedRipple = SharedRipple.update(sharedRipple, this, parent.isSharedRippleEnabled(),
+        style.rippleColor);
+    final int proposedWidth = computeItemWidth(parent.getWidth(), menu.getActionCount());
 
     this.itemFinalWidth = proposedWidth;
 
     for (int i = 0; i < menu.getActionCount(); i++) {
       final ActionTab action = menu.getActionItemAt(i);
       Log.d(TAG, "item: " + action);
+      addView(newTabView(parent, style, action, i == selectedIndex, proposedWidth));
+    }
+  }
 
-      LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(proposedWidth, getHeight());
-
-      FixedActionTabView view = new FixedActionTabView(parent, i == selectedIndex, menu);
-      view.setAction(action);
-      view.setLayoutParams(params);
-      view.setClickable(true);
-      view.setTypeface(parent.typeface);
-      final int index = i;
-      view.setOnClickListener(new OnClickListener() {
-        @Override public void onClick(final View v) {
-          if (null != listener) {
-            listener.onItemClick(FixedTabLayout.this, v, index, true);
-          }
-        }
-      });
+  private ActionTabView newTabView(final BottomNavigationView parent, final RibbonStyle style,
+      final ActionTab action, final boolean expanded, final int width) {
+    LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(width, getHeight());
 
-      view.setOnLongClickListener(new OnLongClickListener() {
-        @Override public boolean onLongClick(final View v) {
-          // TODO May be get use of long click
-          // Toast.makeText(getContext(), item.getTitle(), Toast.LENGTH_SHORT).show();
-          return true;
-        }
-      });
-      addView(view);
+    FixedActionTabView view =
+        parent.getTabViewPool().obtain(parent, FixedActionTabView.class, style);
+    if (view == null) {
+      view = new FixedActionTabView(parent, expanded, style);
+    } else {
+      view.setExpanded(expanded, width, false);
     }
+    view.setAction(action);
+    view.setLayoutParams(params);
+    view.setClickable(true);
+    view.setTypeface(parent.typeface);
+    view.setOnClickListener(new OnClickListener() {
+      @Override public void onClick(final View v) {
+        if (null != listener) {
+          listener.onItemClick(FixedTabLayout.this, v, indexOfChild(v), true);
+        }
+      }
+    });
+
+    view.setOnLongClickListener(new OnLongClickListener() {
+      @Override public boolean onLongClick(final View v) {
+        // TODO May be get use of long click
+        // Toast.makeText(getContext(), item.getTitle(), Toast.LENGTH_SHORT).show();
+        return true;
+      }
+    });
+    return view;
   }
 }
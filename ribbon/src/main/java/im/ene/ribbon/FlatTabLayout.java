@@ -0,0 +1,553 @@
+/*
+ * Copyright 2016 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alessandro Crugnola
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package im.ene.ribbon;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.graphics.drawable.DrawableCompat;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.support.v4.widget.ExploreByTouchHelper;
+import android.util.Log;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.animation.DecelerateInterpolator;
+import java.util.List;
+
+/**
+ * Fixed tab layout drawing all its tabs by itself, instead of hosting one view per tab. The tabs
+ * are only bounds computed once per layout: a selection change redraws this single view, and the
+ * accessibility services see the tabs through virtual views.
+ */
+@SuppressLint("ViewConstructor")  //
+public class FlatTabLayout extends View implements BottomTabLayout {
+  private static final String TAG = FlatTabLayout.class.getSimpleName();
+  private static final float TEXT_SCALE_ACTIVE = 1.1666666667f;
+  private static final int[] STATE_PRESSED =
+      { android.R.attr.state_pressed, android.R.attr.state_enabled };
+  private static final int[] STATE_ENABLED = { android.R.attr.state_enabled };
+  private static final ActionTab[] EMPTY = new ActionTab[0];
+
+  private final int maxActiveItemWidth;
+  private final int minActiveItemWidth;
+  private final int paddingTopActive;
+  private final int paddingTopInactive;
+  private final int paddingBottom;
+  private final int paddingHorizontal;
+  private final int iconSize;
+  private final Paint textPaint;
+  private final RibbonAnimationClock.Animation animation;
+  private final AccessibilityHelper accessibilityHelper;
+  private final Drawable ripple;
+  private ColorRamp colorRamp;
+  private BadgeProvider provider;
+
+  private ActionTab[] tabs = EMPTY;
+  private Rect[] bounds = new Rect[0];
+  private Drawable[] icons = new Drawable[0];
+  private Drawable[] badges = new Drawable[0];
+  private float[] textX = new float[0];
+  /**
+   * Position of each tab between its inactive (0) and active (1) state
+   */
+  private float[] positions = new float[0];
+  private float[] startPositions = new float[0];
+
+  private boolean hasFrame;
+  private int selectedIndex;
+  private int pressedIndex = -1;
+  /**
+   * Tab the ripple is drawn over, kept after the release while the ripple fades out
+   */
+  private int rippleIndex = -1;
+  private OnItemClickListener listener;
+  private MenuParser.Menu menu;
+
+  public FlatTabLayout(final Context context, final RibbonStyle style) {
+    super(context);
+    selectedIndex = 0;
+
+    maxActiveItemWidth = style.fixedActiveItemMaxWidth;
+    minActiveItemWidth = style.fixedActiveItemMinWidth;
+    paddingTopActive = style.fixedActiveItemPaddingTop;
+    paddingTopInactive = style.fixedInactiveItemPaddingTop;
+    paddingBottom = style.fixedItemPaddingBottom;
+    paddingHorizontal = style.fixedItemPaddingHorizontal;
+    iconSize = style.fixedItemIconSize;
+    colorRamp = style.getColorRamp();
+
+    textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    textPaint.setHinting(Paint.HINTING_ON);
+    textPaint.setLinearText(true);
+    textPaint.setSubpixelText(true);
+    textPaint.setTextSize(style.fixedInactiveItemTextSize);
+
+    ripple = ContextCompat.getDrawable(context, R.drawable.ribbon_ripple_selector).mutate();
+    ripple.setCallback(this);
+    MiscUtils.setDrawableColor(ripple, style.rippleColor);
+
+    animation = new RibbonAnimationClock.Animation(style.itemAnimationDuration,
+        new DecelerateInterpolator()) {
+      @Override void onUpdate(final float fraction) {
+        for (int i = 0; i < positions.length; i++) {
+          final float target = i == selectedIndex ? 1 : 0;
+          positions[i] = startPositions[i] + (target - startPositions[i]) * fraction;
+        }
+      }
+    };
+
+    accessibilityHelper = new AccessibilityHelper(this);
+    ViewCompat.setAccessibilityDelegate(this, accessibilityHelper);
+  }
+
+  @Override public void removeAll() {
+    animation.cancel();
+    setPressedIndex(-1);
+    setTabs(EMPTY);
+    selectedIndex = 0;
+    menu = null;
+    accessibilityHelper.invalidateRoot();
+    invalidate();
+  }
+
+  @Override protected void onSizeChanged(final int w, final int h, final int oldw, final int oldh) {
+    super.onSizeChanged(w, h, oldw, oldh);
+    hasFrame = true;
+
+    if (null != menu) {
+      populateInternal(menu);
+      menu = null;
+    } else {
+      layoutTabs();
+    }
+  }
+
+  @Override public void setSelectedItem(final int itemIndex, final boolean animate) {
+    Log.i(TAG, "setSelectedItem: " + itemIndex);
+
+    if (selectedIndex == itemIndex) {
+      return;
+    }
+
+    final int oldSelectedIndex = this.selectedIndex;
+    this.selectedIndex = itemIndex;
+
+    if (tabs.length == 0) {
+      return;
+    }
+
+    // an animation in progress continues from the current positions
+    if (animate && hasFrame) {
+      System.arraycopy(positions, 0, startPositions, 0, positions.length);
+      animation.start(((BottomNavigationView) getParent()).getAnimationClock(), this);
+    } else {
+      animation.cancel();
+      resetPositions();
+      invalidate();
+    }
+
+    if (oldSelectedIndex >= 0 && oldSelectedIndex < tabs.length) {
+      accessibilityHelper.invalidateVirtualView(oldSelectedIndex);
+    }
+    accessibilityHelper.invalidateVirtualView(itemIndex);
+  }
+
+  @Override public int getSelectedItem() {
+    return selectedIndex;
+  }
+
+  @Override public void populate(@NonNull final MenuParser.Menu menu) {
+    Log.i(TAG, "populate: " + menu);
+    if (hasFrame) {
+      populateInternal(menu);
+    } else {
+      this.menu = menu;
+    }
+  }
+
+  @Override public void update(@NonNull final MenuParser.Menu menu, final int selectedIndex) {
+    Log.i(TAG, "update: " + menu);
+    // no view to reuse: the new tabs are bound in place of the current ones
+    animation.cancel();
+    setPressedIndex(-1);
+    this.selectedIndex = selectedIndex;
+    populate(menu);
+  }
+
+  @Override public void setOnItemClickListener(final OnItemClickListener listener) {
+    this.listener = listener;
+  }
+
+  @Override public void getTabBounds(final int index, @NonNull final Rect outRect) {
+    outRect.set(bounds[index]);
+  }
+
+  @Override public void invalidateBadge(final int itemId) {
+    for (int i = 0; i < tabs.length; i++) {
+      if (tabs[i].getItemId() == itemId) {
+        loadBadge(i);
+        invalidate();
+        return;
+      }
+    }
+  }
+
+  @Override public void setTypeface(@NonNull final Typeface typeface) {
+    if (typeface != textPaint.getTypeface()) {
+      textPaint.setTypeface(typeface);
+      layoutTabs();
+      invalidate();
+    }
+  }
+
+  private void populateInternal(@NonNull final MenuParser.Menu menu) {
+    Log.d(TAG, "populateInternal");
+
+    final BottomNavigationView parent = (BottomNavigationView) getParent();
+    final RibbonStyle style = menu.getStyle(getResources());
+    colorRamp = style.getColorRamp();
+    provider = parent.getBadgeProvider();
+    MiscUtils.setDrawableColor(ripple, style.rippleColor);
+
+    textPaint.setTypeface(parent.typeface);
+
+    setTabs(menu.getActions());
+    for (int i = 0; i < tabs.length; i++) {
+      icons[i] = IconCache.obtain(getContext(), tabs[i].getIconRes(),
+          i == selectedIndex ? style.colorActive : style.colorInactive, iconSize);
+      loadBadge(i);
+    }
+
+    resetPositions();
+    layoutTabs();
+    accessibilityHelper.invalidateRoot();
+    invalidate();
+  }
+
+  private void setTabs(final ActionTab[] tabs) {
+    final int count = tabs.length;
+    for (int i = 0; i < badges.length; i++) {
+      if (badges[i] != null) {
+        badges[i].setCallback(null);
+        badges[i] = null;
+      }
+    }
+    this.tabs = tabs;
+    this.rippleIndex = -1;
+    if (bounds.length != count) {
+      bounds = new Rect[count];
+      for (int i = 0; i < count; i++) {
+        bounds[i] = new Rect();
+      }
+      icons = new Drawable[count];
+      badges = new Drawable[count];
+      textX = new float[count];
+      positions = new float[count];
+      startPositions = new float[count];
+    }
+  }
+
+  private void resetPositions() {
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = i == selectedIndex ? 1 : 0;
+    }
+  }
+
+  private void loadBadge(final int index) {
+    final Drawable drawable = provider.getBadgeDrawable(tabs[index].getItemId());
+    if (badges[index] != drawable) {
+      if (badges[index] != null) {
+        badges[index].setCallback(null);
+      }
+      badges[index] = drawable;
+      if (drawable != null) {
+        drawable.setCallback(this);
+        if (drawable instanceof Badge) {
+          ((Badge) drawable).fadeIn(((BottomNavigationView) getParent()).getAnimationClock(), this);
+        }
+      }
+    }
+  }
+
+  /**
+   * Computes the bounds of the tabs, their icons and their titles for the current size.
+   */
+  private void layoutTabs() {
+    if (!hasFrame || tabs.length == 0) {
+      return;
+    }
+
+    final int width = getWidth();
+    final int height = getHeight();
+    final int itemWidth = computeItemWidth(width, tabs.length);
+    int left = (width - itemWidth * tabs.length) / 2;
+
+    for (int i = 0; i < tabs.length; i++) {
+      bounds[i].set(left, 0, left + itemWidth, height);
+
+      final int iconLeft = left + (itemWidth - iconSize) / 2;
+      icons[i].setBounds(iconLeft, paddingTopActive, iconLeft + iconSize,
+          paddingTopActive + iconSize);
+
+      final float textWidth = TextCache.measure(textPaint, tabs[i].getTitle());
+      textX[i] = left + paddingHorizontal + (((itemWidth - paddingHorizontal * 2) - textWidth) / 2);
+      left += itemWidth;
+    }
+  }
+
+  private int computeItemWidth(final int screenWidth, final int count) {
+    int proposedWidth =
+        Math.min(Math.max(screenWidth / count, minActiveItemWidth), maxActiveItemWidth);
+
+    if (proposedWidth * count > screenWidth) {
+      proposedWidth = screenWidth / count;
+    }
+    return proposedWidth;
+  }
+
+  @Override protected void onDraw(final Canvas canvas) {
+    super.onDraw(canvas);
+
+    if (rippleIndex >= 0) {
+      ripple.setBounds(bounds[rippleIndex]);
+      ripple.draw(canvas);
+    }
+
+    final float textY = getHeight() - paddingBottom;
+    final float iconTranslationInactive = paddingTopInactive - paddingTopActive;
+
+    for (int i = 0; i < tabs.length; i++) {
+      final float position = positions[i];
+      final int color = colorRamp.getColor(position);
+      final Drawable icon = icons[i];
+
+      canvas.save();
+      canvas.translate(0, (1 - position) * iconTranslationInactive);
+      icon.setColorFilter(colorRamp.getColorFilter(position));
+      icon.setAlpha(Color.alpha(color));
+      icon.draw(canvas);
+      drawBadge(canvas, badges[i], icon.getBounds());
+      canvas.restore();
+
+      final float textScale = 1 + (TEXT_SCALE_ACTIVE - 1) * position;
+      textPaint.setColor(color);
+      canvas.save();
+      canvas.scale(textScale, textScale, bounds[i].centerX(), textY);
+      canvas.drawText(tabs[i].getTitle(), textX[i], textY, textPaint);
+      canvas.restore();
+    }
+  }
+
+  private static void drawBadge(final Canvas canvas, final Drawable badge, final Rect iconBounds) {
+    if (badge != null) {
+      badge.setBounds(iconBounds.right - badge.getIntrinsicWidth(), iconBounds.top,
+          iconBounds.right, iconBounds.top + badge.getIntrinsicHeight());
+      badge.draw(canvas);
+    }
+  }
+
+  @Override protected boolean verifyDrawable(@NonNull final Drawable who) {
+    if (super.verifyDrawable(who) || who == ripple) {
+      return true;
+    }
+    for (Drawable badge : badges) {
+      if (who == badge) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override public void jumpDrawablesToCurrentState() {
+    super.jumpDrawablesToCurrentState();
+    ripple.jumpToCurrentState();
+  }
+
+  // clicks are dispatched per tab, the accessibility services click through the virtual views
+  @SuppressLint("ClickableViewAccessibility") @Override
+  public boolean onTouchEvent(final MotionEvent event) {
+    final float x = event.getX();
+    final float y = event.getY();
+
+    switch (event.getActionMasked()) {
+      case MotionEvent.ACTION_DOWN:
+        final int index = findTabAt(x, y);
+        if (index < 0 || !tabs[index].isEnabled()) {
+          return false;
+        }
+        setPressedIndex(index);
+        DrawableCompat.setHotspot(ripple, x, y);
+        return true;
+
+      case MotionEvent.ACTION_MOVE:
+        if (pressedIndex >= 0) {
+          if (findTabAt(x, y) != pressedIndex) {
+            setPressedIndex(-1);
+          } else {
+            DrawableCompat.setHotspot(ripple, x, y);
+          }
+        }
+        return true;
+
+      case MotionEvent.ACTION_UP:
+        if (pressedIndex >= 0) {
+          final int clicked = pressedIndex;
+          setPressedIndex(-1);
+          playSoundEffect(SoundEffectConstants.CLICK);
+          performTabClick(clicked);
+        }
+        return true;
+
+      case MotionEvent.ACTION_CANCEL:
+        setPressedIndex(-1);
+        return true;
+
+      default:
+        return false;
+    }
+  }
+
+  private void setPressedIndex(final int index) {
+    if (index >= 0) {
+      if (rippleIndex != index) {
+        rippleIndex = index;
+        ripple.jumpToCurrentState();
+      }
+      ripple.setState(STATE_PRESSED);
+    } else if (pressedIndex >= 0) {
+      ripple.setState(STATE_ENABLED);
+    }
+    pressedIndex = index;
+    invalidate();
+  }
+
+  private int findTabAt(final float x, final float y) {
+    for (int i = 0; i < tabs.length; i++) {
+      if (bounds[i].contains((int) x, (int) y)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private void performTabClick(final int index) {
+    if (null != listener) {
+      listener.onItemClick(this, this, index, true);
+    }
+    accessibilityHelper.sendEventForVirtualView(index, AccessibilityEvent.TYPE_VIEW_CLICKED);
+  }
+
+  private String getTitle(final int index) {
+    return index < tabs.length ? tabs[index].getTitle() : "";
+  }
+
+  @Override protected boolean dispatchHoverEvent(final MotionEvent event) {
+    return accessibilityHelper.dispatchHoverEvent(event) || super.dispatchHoverEvent(event);
+  }
+
+  /**
+   * Exposes each tab as a virtual view, with the title, the state and the click action a tab view
+   * would have.
+   */
+  private static final class AccessibilityHelper extends ExploreByTouchHelper {
+    private static final Rect EMPTY_BOUNDS = new Rect();
+    private final FlatTabLayout layout;
+
+    AccessibilityHelper(final FlatTabLayout layout) {
+      super(layout);
+      this.layout = layout;
+    }
+
+    @Override protected int getVirtualViewAt(final float x, final float y) {
+      final int index = layout.findTabAt(x, y);
+      return index >= 0 ? index : INVALID_ID;
+    }
+
+    @Override protected void getVisibleVirtualViews(final List<Integer> virtualViewIds) {
+      for (int i = 0; i < layout.tabs.length; i++) {
+        virtualViewIds.add(i);
+      }
+    }
+
+    @Override protected void onPopulateEventForVirtualView(final int virtualViewId,
+        final AccessibilityEvent event) {
+      event.setContentDescription(layout.getTitle(virtualViewId));
+    }
+
+    @Override protected void onPopulateNodeForVirtualView(final int virtualViewId,
+        final AccessibilityNodeInfoCompat node) {
+      node.setText(layout.getTitle(virtualViewId));
+      // the bounds are required, even for a tab removed while the event was pending
+      if (virtualViewId < layout.tabs.length) {
+        final ActionTab tab = layout.tabs[virtualViewId];
+        node.setBoundsInParent(layout.bounds[virtualViewId]);
+        node.setEnabled(tab.isEnabled());
+        node.setSelected(virtualViewId == layout.selectedIndex);
+        if (tab.isEnabled()) {
+          node.setClickable(true);
+          node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+        }
+      } else {
+        node.setBoundsInParent(EMPTY_BOUNDS);
+      }
+    }
+
+    @Override protected boolean onPerformActionForVirtualView(final int virtualViewId,
+        final int action, final Bundle arguments) {
+      if (action == AccessibilityNodeInfoCompat.ACTION_CLICK
+          && virtualViewId < layout.tabs.length
+          && layout.tabs[virtualViewId].isEnabled()) {
+        layout.performTabClick(virtualViewId);
+        return true;
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alessandro Crugnola
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package im.ene.ribbon;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.os.SystemClock;
+import android.view.View;
+
+import static android.util.Log.DEBUG;
+import static im.ene.ribbon.MiscUtils.log;
+
+/**
+ * Renders a view into a hardware layer while an animation runs, and restores its layer type when
+ * the animation ends or is cancelled. The frames which only change the view alpha, scale,
+ * translation or clip then compose the layer instead of drawing the view again.
+ *
+ * Only for views whose content stays the same during the animation: a view drawing something
+ * new on every frame would render its layer again on every frame, on top of composing it.
+ */
+final class HardwareLayer extends AnimatorListenerAdapter {
+  private static final String TAG = HardwareLayer.class.getSimpleName();
+
+  private final View view;
+  private boolean promoted;
+  private long startTime;
+
+  HardwareLayer(final View view) {
+    this.view = view;
+  }
+
+  /**
+   * Promotes the view for the duration of the animator, unless {@code enabled} is false.
+   */
+  static void promote(final View view, final Animator animator, final boolean enabled) {
+    if (enabled) {
+      animator.addListener(new HardwareLayer(view));
+    }
+  }
+
+  @Override public void onAnimationStart(final Animator animation) {
+    // views already rendered into a layer by the application are left alone
+    if (!promoted && view.getLayerType() == View.LAYER_TYPE_NONE) {
+      promoted = true;
+      startTime = SystemClock.uptimeMillis();
+      view.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+    }
+  }
+
+  @Override public void onAnimationEnd(final Animator animation) {
+    if (promoted) {
+      promoted = false;
+      view.setLayerType(View.LAYER_TYPE_NONE, null);
+      log(TAG, DEBUG, "%s layer released after %d ms", view.getClass().getSimpleName(),
+          SystemClock.uptimeMillis() - startTime);
+    }
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2016 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alessandro Crugnola
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package im.ene.ribbon;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.PorterDuff;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.support.annotation.DrawableRes;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.util.LruCache;
+
+import static android.util.Log.INFO;
+import static im.ene.ribbon.MiscUtils.log;
+
+/**
+ * Process wide cache of tinted tab icons, keyed by drawable resource, tint, size and density.
+ *
+ * Only the {@link Drawable.ConstantState} of the icons is kept, so the cache doesn't reference
+ * any Context and survives Activity recreation. Every call hands out a new, already mutated
+ * instance sharing the decoded bitmap, that the tab view can animate on its own. The tint is set
+ * on each instance: vector drawables keep their color filter out of the shared state.
+ */
+final class IconCache {
+  private static final String TAG = IconCache.class.getSimpleName();
+
+  /**
+   * Maximum number of icons kept in memory: two tints, and their pre-rendered variants, for five
+   * items of a few menus
+   */
+  private static final int MAX_SIZE = 60;
+
+  private static final LruCache<Key, Drawable.ConstantState> CACHE = new LruCache<>(MAX_SIZE);
+
+  private IconCache() {
+    throw new AssertionError("Illegal initialization!");
+  }
+
+  /**
+   * Returns a mutated instance of the icon, tinted with the passed color and sized to
+   * {@code size}. Safe to call from any thread.
+   */
+  static Drawable obtain(final Context context, @DrawableRes final int iconRes, final int tint,
+      final int size) {
+    final Resources res = context.getResources();
+    final Key key = new Key(iconRes, tint, size, res.getDisplayMetrics().densityDpi, false);
+
+    Drawable.ConstantState state = CACHE.get(key);
+    if (state == null) {
+      log(TAG, INFO, "obtain: %x not cached", iconRes);
+      final Drawable drawable = ContextCompat.getDrawable(context, iconRes).mutate();
+      drawable.setColorFilter(tint, PorterDuff.Mode.SRC_ATOP);
+      state = drawable.getConstantState();
+
+      // themed drawables must be inflated with the theme of the view using them
+      if (state == null || (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+          && drawable.canApplyTheme())) {
+        drawable.setBounds(0, 0, size, size);
+        return drawable;
+      }
+      CACHE.put(key, state);
+    }
+
+    final Drawable drawable = state.newDrawable(res).mutate();
+    drawable.setColorFilter(tint, PorterDuff.Mode.SRC_ATOP);
+    drawable.setBounds(0, 0, size, size);
+    return drawable;
+  }
+
+  /**
+   * Same as {@link #obtain(Context, int, int, int)}, but the tinted icon is rendered once into a
+   * bitmap: drawing the returned instance doesn't apply any color filter.
+   */
+  static Drawable obtainVariant(final Context context, @DrawableRes final int iconRes,
+      final int tint, final int size) {
+    final Resources res = context.getResources();
+    final Key key = new Key(iconRes, tint, size, res.getDisplayMetrics().densityDpi, true);
+
+    Drawable.ConstantState state = CACHE.get(key);
+    if (state == null) {
+      log(TAG, INFO, "obtainVariant: %x not cached", iconRes);
+      final Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+      obtain(context, iconRes, tint, size).draw(new Canvas(bitmap));
+      state = new BitmapDrawable(res, bitmap).getConstantState();
+      CACHE.put(key, state);
+    }
+
+    final Drawable drawable = state.newDrawable(res).mutate();
+    drawable.setBounds(0, 0, size, size);
+    return drawable;
+  }
+
+  /**
+   * Loads the icons of the menu with its active and inactive colors, so the tab views displaying
+   * it don't have to decode them. Both display modes are loaded, as the tablet mode depends on
+   * the gravity of the view, which isn't known before it is attached.
+   */
+  static void preload(final Context context, final MenuParser.Menu menu) {
+    preloadIcons(context, menu.withTabletMode(false));
+    preloadIcons(context, menu.withTabletMode(true));
+  }
+
+  private static void preloadIcons(final Context context, final MenuParser.Menu menu) {
+    final RibbonStyle style = menu.getStyle(context.getResources());
+    final int size = menu.isTablet() ? style.tabletItemIconSize
+        : menu.isShifting() ? style.shiftingItemIconSize : style.fixedItemIconSize;
+    for (int i = 0; i < menu.getActionCount(); i++) {
+      final int iconRes = menu.getActionItemAt(i).getIconRes();
+      obtain(context, iconRes, style.colorActive, size);
+      obtain(context, iconRes, style.colorInactive, size);
+    }
+  }
+
+  /**
+   * Drops all the cached icons
+   */
+  static void clear() {
+    CACHE.evictAll();
+  }
+
+  private static final class Key {
+    final int iconRes;
+    final int tint;
+    final int size;
+    final int density;
+    final boolean variant;
+
+    Key(final int iconRes, final int tint, final int size, final int density,
+        final boolean variant) {
+      this.iconRes = iconRes;
+      this.tint = tint;
+      this.size = size;
+      this.density = density;
+      this.variant = variant;
+    }
+
+    @Override public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key key = (Key) o;
+      return iconRes == key.iconRes
+          && tint == key.tint
+          && size == key.size
+          && density == key.density
+          && variant == key.variant;
+    }
+
+    @Override public int hashCode() {
+      int result = iconRes;
+      result = 31 * result + tint;
+      result = 31 * result + size;
+      result = 31 * result + density;
+      result = 31 * result + (variant ? 1 : 0);
+      return result;
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alessandro Crugnola
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package im.ene.ribbon;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.support.annotation.MenuRes;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+import java.lang.ref.WeakReference;
+
+import static android.util.Log.INFO;
+import static im.ene.ribbon.MiscUtils.log;
+
+/**
+ * Process wide cache of parsed menus, keyed by menu resource, theme and {@link Configuration}.
+ *
+ * Cached {@link MenuParser.Menu} instances are immutable and don't reference any Context. The
+ * theme is identified by {@link ThemeKey}: from API 24 an Activity recreated with the same theme
+ * finds its menus again, before that each theme instance has its own entries.
+ */
+public final class MenuCache {
+  private static final String TAG = MenuCache.class.getSimpleName();
+
+  /**
+   * Maximum number of menus kept in memory
+   */
+  private static final int MAX_SIZE = 8;
+
+  private static final LruCache<Key, MenuParser.Menu> CACHE = new LruCache<>(MAX_SIZE);
+
+  private MenuCache() {
+    throw new AssertionError("Illegal initialization!");
+  }
+
+  /**
+   * Parses the passed menus ahead of time, so that a later
+   * {@link BottomNavigationView#setMenuItems(int)} with the same context costs nothing.
+   *
+   * @param context the context the menus will be displayed with
+   * @param menuRes the menus to parse
+   */
+  public static void preload(final Context context, @MenuRes final int... menuRes) {
+    for (int res : menuRes) {
+      obtain(context, res);
+    }
+  }
+
+  /**
+   * Drops all the cached menus, their icons and their titles measurements
+   */
+  public static void clear() {
+    CACHE.evictAll();
+    IconCache.clear();
+    TextCache.clear();
+  }
+
+  /**
+   * Returns the cached menu, or null if it hasn't been parsed yet.
+   */
+  @Nullable static MenuParser.Menu peek(final Context context, @MenuRes final int menuRes) {
+    return CACHE.get(newKey(context, menuRes));
+  }
+
+  /**
+   * Returns the cached menu, parsing it if needed. Safe to call from any thread.
+   */
+  @Nullable static MenuParser.Menu obtain(final Context context, @MenuRes final int menuRes) {
+    final Key key = newKey(context, menuRes);
+
+    MenuParser.Menu menu = CACHE.get(key);
+    if (menu == null) {
+      log(TAG, INFO, "obtain: %x not cached", menuRes);
+      menu = MenuParser.obtainMenu(context, menuRes);
+      if (menu != null) {
+        CACHE.put(key, menu);
+      }
+    }
+    return menu;
+  }
+
+  private static Key newKey(final Context context, @MenuRes final int menuRes) {
+    return new Key(menuRes, new ThemeKey(context.getTheme()),
+        context.getResources().getConfiguration());
+  }
+
+  /**
+   * Identifies the theme a menu has been resolved with, whichever attributes its xml refers to.
+   * {@link Resources.Theme} compares the styles applied to it from API 24, and its identity
+   * before. The theme is only weakly referenced: a collected theme matches nothing.
+   */
+  static final class ThemeKey {
+    private final WeakReference<Resources.Theme> theme;
+    private final int hashCode;
+
+    ThemeKey(final Resources.Theme theme) {
+      this.theme = new WeakReference<>(theme);
+      this.hashCode = theme.hashCode();
+    }
+
+    @Override public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ThemeKey) || hashCode != o.hashCode()) {
+        return false;
+      }
+      final Resources.Theme value = theme.get();
+      return value != null && value.equals(((ThemeKey) o).theme.get());
+    }
+
+    @Override public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  private static final class Key {
+    final int menuRes;
+    final ThemeKey theme;
+    final Configuration configuration;
+
+    Key(final int menuRes, final ThemeKey theme, final Configuration configuration) {
+      this.menuRes = menuRes;
+      this.theme = theme;
+      this.configuration = new Configuration(configuration);
+    }
+
+    @Override public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key key = (Key) o;
+      return menuRes == key.menuRes
+          && theme.equals(key.theme)
+          && configuration.equals(key.configuration);
+    }
+
+    @Override public int hashCode() {
+      int result = menuRes;
+      result = 31 * result + theme.hashCode();
+      result = 31 * result + configuration.hashCode();
+      return result;
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alessandro Crugnola
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package im.ene.ribbon;
+
+import android.view.View;
+import android.view.ViewGroup;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Matches the tab views of a layout with the items of a new menu, so that a menu update only
+ * touches the tabs which were added, removed or modified.
+ */
+final class MenuDiff {
+
+  private MenuDiff() {
+  }
+
+  /**
+   * Returns, for every item of the new menu, the view of the layout currently displaying the
+   * item with the same id, or null if a new view is needed. All the views which don't match any
+   * item are added to {@code removed}.
+   */
+  static ActionTabView[] match(final ViewGroup layout, final ActionTab[] tabs,
+      final List<ActionTabView> removed) {
+    final int count = layout.getChildCount();
+    final int[] oldIds = new int[count];
+    for (int i = 0; i < count; i++) {
+      oldIds[i] = ((ActionTabView) layout.getChildAt(i)).getAction().getItemId();
+    }
+    final int[] newIds = new int[tabs.length];
+    for (int i = 0; i < tabs.length; i++) {
+      newIds[i] = tabs[i].getItemId();
+    }
+
+    final int[] indices = matchIndices(oldIds, newIds);
+    final boolean[] used = new boolean[count];
+    final ActionTabView[] matches = new ActionTabView[tabs.length];
+    for (int i = 0; i < tabs.length; i++) {
+      if (indices[i] >= 0) {
+        matches[i] = (ActionTabView) layout.getChildAt(indices[i]);
+        used[indices[i]] = true;
+      }
+    }
+
+    for (int i = 0; i < count; i++) {
+      if (!used[i]) {
+        removed.add((ActionTabView) layout.getChildAt(i));
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * Returns, for every new id, the position of the old id it matches or -1. Ids are matched by
+   * value when they are all set and unique on both sides, otherwise (items without an id, or
+   * factories assigning the same id to every item) by position.
+   */
+  static int[] matchIndices(final int[] oldIds, final int[] newIds) {
+    final int[] indices = new int[newIds.length];
+    final HashMap<Integer, Integer> positions = indexOf(oldIds);
+    if (null == positions || null == indexOf(newIds)) {
+      for (int i = 0; i < newIds.length; i++) {
+        indices[i] = i < oldIds.length ? i : -1;
+      }
+      return indices;
+    }
+
+    for (int i = 0; i < newIds.length; i++) {
+      final Integer position = positions.get(newIds[i]);
+      indices[i] = null != position ? position : -1;
+    }
+    return indices;
+  }
+
+  /**
+   * @return the position of every id, or null if an id is missing or duplicated
+   */
+  private static HashMap<Integer, Integer> indexOf(final int[] ids) {
+    final HashMap<Integer, Integer> positions = new HashMap<>(ids.length * 2);
+    for (int i = 0; i < ids.length; i++) {
+      // the parser reads a missing android:id as 0
+      if (ids[i] == 0 || ids[i] == View.NO_ID || null != positions.put(ids[i], i)) {
+        return null;
+      }
+    }
+    return positions;
+  }
+
+  /**
+   * Returns the position of the selected item in the new menu: the item keeps its selection if it
+   * is still part of the menu.
+   */
+  static int selectedIndex(final MenuParser.Menu oldMenu, final int oldIndex,
+      final MenuParser.Menu newMenu) {
+    if (oldIndex >= 0 && oldIndex < oldMenu.getActionCount()) {
+      final int[] indices = matchIndices(getItemIds(oldMenu), getItemIds(newMenu));
+      for (int i = 0; i < indices.length; i++) {
+        if (indices[i] == oldIndex) {
+          return i;
+        }
+      }
+    }
+    return Math.max(0, Math.min(oldIndex, newMenu.getActionCount() - 1));
+  }
+
+  private static int[] getItemIds(final MenuParser.Menu menu) {
+    final int[] ids = new int[menu.getActionCount()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = menu.getActionItemAt(i).getItemId();
+    }
+    return ids;
+  }
+}
@@ -39,11 +39,13 @@
 package im.ene.ribbon;
 
 import android.content.Context;
+import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.content.res.XmlResourceParser;
 import android.graphics.Color;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.MenuRes;
+import android.support.annotation.Nullable;
 import android.support.v4.content.ContextCompat;
 import android.util.AttributeSet;
 import android.util.Xml;
@@ -51,24 +53,72 @@ import java.util.ArrayList;
 import java.util.List;
 import org.xmlpull.v1.XmlPullParser;
 
+import static android.util.Log.INFO;
+import static im.ene.ribbon.MiscUtils.log;
+
 class MenuParser {
 
   private static final String TAG = MenuParser.class.getSimpleName();
 
+  /**
+   * Class generated by `ribbon/menus.gradle` for the menus of the application, if any.
+   */
+  static final String GENERATED_FACTORY = "im.ene.ribbon.GeneratedMenuFactory";
+
+  private static MenuFactory generatedFactory;
+  private static boolean generatedFactoryResolved;
+
+  /**
+   * Parsed menu. Immutable and free of any {@link Context} reference, so the same instance can be
+   * shared by {@link MenuCache} between views and Activity instances.
+   */
   static class Menu {
-    private final Context context;
-    private ActionTab[] actionTabs;
-    private int colorActive;
-    private int background;
-    private int rippleColor;
-    private int colorInactive;
-    private int itemAnimationDuration;
-    private boolean shifting;
-    private boolean tablet;
-    private int badgeColor;
-
-    public Menu(final Context context) {
-      this.context = context;
+    private final ActionTab[] actionTabs;
+    private final ThemeColors themeColors;
+    private final int colorActive;
+    private final int background;
+    private final int rippleColor;
+    private final int colorInactive;
+    private final int itemAnimationDuration;
+    private final boolean shifting;
+    private final boolean tablet;
+    private final int badgeColor;
+
+    // the same menu in the other display mode, built up front so that menus shared across
+    // threads are never modified
+    private final Menu tabletCounterpart;
+
+    // resolved lazily, then shared by every view displaying this menu
+    private RibbonStyle style;
+
+    Menu(final ThemeColors themeColors, final int itemAnimationDuration, final int background,
+        final int rippleColor, final int colorInactive, final int colorActive,
+        final int badgeColor, final ActionTab[] items, final boolean tablet) {
+      this.themeColors = themeColors;
+      this.itemAnimationDuration = itemAnimationDuration;
+      this.background = background;
+      this.rippleColor = rippleColor;
+      this.colorInactive = colorInactive;
+      this.colorActive = colorActive;
+      this.badgeColor = badgeColor;
+      this.actionTabs = items;
+      this.shifting = null != items && items.length > 360 / 80;
+      this.tablet = tablet;
+      this.tabletCounterpart = new Menu(this);
+    }
+
+    private Menu(final Menu counterpart) {
+      this.themeColors = counterpart.themeColors;
+      this.itemAnimationDuration = counterpart.itemAnimationDuration;
+      this.background = counterpart.background;
+      this.rippleColor = counterpart.rippleColor;
+      this.colorInactive = counterpart.colorInactive;
+      this.colorActive = counterpart.colorActive;
+      this.badgeColor = counterpart.badgeColor;
+      this.actionTabs = counterpart.actionTabs;
+      this.shifting = counterpart.shifting;
+      this.tablet = !counterpart.tablet;
+      this.tabletCounterpart = counterpart;
     }
 
     public int getItemAnimationDuration() {
@@ -88,9 +138,9 @@ class MenuParser {
     public int getBackground() {
       if (0 == background) {
         if (shifting && !tablet) {
-          return MiscUtils.getColor(context, R.attr.colorPrimary);
+          return themeColors.colorPrimary;
         } else {
-          return MiscUtils.getColor(context, android.R.attr.windowBackground);
+          return themeColors.windowBackground;
         }
       }
       return background;
@@ -99,9 +149,9 @@ class MenuParser {
     public int getColorActive() {
       if (colorActive == 0) {
         if (shifting && !tablet) {
-          colorActive = MiscUtils.getColor(context, android.R.attr.colorForegroundInverse);
+          return themeColors.colorForegroundInverse;
         } else {
-          colorActive = MiscUtils.getColor(context, R.attr.colorPrimary);
+          return themeColors.colorPrimary;
         }
       }
       return colorActive;
@@ -109,17 +159,9 @@ class MenuParser {
 
     public int getColorInactive() {
       if (colorInactive == 0) {
-        if (shifting && !tablet) {
-          int color = getColorActive();
-          colorInactive =
-              Color.argb(Color.alpha(color) * 3 / 4, Color.red(color), Color.green(color),
-                  Color.blue(color));
-        } else {
-          int color = getColorActive();
-          colorInactive =
-              Color.argb(Color.alpha(color) * 3 / 4, Color.red(color), Color.green(color),
-                  Color.blue(color));
-        }
+        int color = getColorActive();
+        return Color.argb(Color.alpha(color) * 3 / 4, Color.red(color), Color.green(color),
+            Color.blue(color));
       }
 
       return colorInactive;
@@ -128,19 +170,14 @@ class MenuParser {
     public int getRippleColor() {
       if (rippleColor == 0) {
         if (shifting && !tablet) {
-          rippleColor = ContextCompat.getColor(context, R.color.ribbon_shifting_item_ripple_color);
+          return themeColors.shiftingRippleColor;
         } else {
-          rippleColor = ContextCompat.getColor(context, R.color.ribbon_fixed_item_ripple_color);
+          return themeColors.fixedRippleColor;
         }
       }
       return rippleColor;
     }
 
-    public void setItems(final ActionTab[] items) {
-      this.actionTabs = items;
-      this.shifting = null != items && items.length > 360 / 80;
-    }
-
     boolean isShifting() {
       return shifting;
     }
@@ -165,8 +202,23 @@ class MenuParser {
       return actionTabs[0].hasColor();
     }
 
-    void setTabletMode(final boolean tablet) {
-      this.tablet = tablet;
+    /**
+     * Returns this menu as displayed in tablet mode, or not. The receiver is left untouched.
+     */
+    Menu withTabletMode(final boolean tablet) {
+      return this.tablet == tablet ? this : tabletCounterpart;
+    }
+
+    /**
+     * Returns the colors and sizes used to draw this menu. They are resolved on the first call
+     * only: {@link MenuCache} and {@link RibbonMenu} build a new menu for each configuration, so
+     * the dimensions can't change afterwards. Safe to call from the loader thread.
+     */
+    synchronized RibbonStyle getStyle(final Resources res) {
+      if (style == null) {
+        style = new RibbonStyle(res, this);
+      }
+      return style;
     }
 
     public boolean isTablet() {
@@ -174,6 +226,33 @@ class MenuParser {
     }
   }
 
+  /**
+   * Theme values a {@link Menu} falls back to when its colors are not declared in xml. The theme
+   * itself is identified by {@link MenuCache.ThemeKey}.
+   */
+  static final class ThemeColors {
+    final int colorPrimary;
+    final int windowBackground;
+    final int colorForegroundInverse;
+    final int shiftingRippleColor;
+    final int fixedRippleColor;
+
+    private ThemeColors(final Context context) {
+      this.colorPrimary = MiscUtils.getColor(context, R.attr.colorPrimary);
+      this.windowBackground = MiscUtils.getColor(context, android.R.attr.windowBackground);
+      this.colorForegroundInverse =
+          MiscUtils.getColor(context, android.R.attr.colorForegroundInverse);
+      this.shiftingRippleColor =
+          ContextCompat.getColor(context, R.color.ribbon_shifting_item_ripple_color);
+      this.fixedRippleColor =
+          ContextCompat.getColor(context, R.color.ribbon_fixed_item_ripple_color);
+    }
+
+    static ThemeColors resolve(final Context context) {
+      return new ThemeColors(context);
+    }
+  }
+
   static class MenuItem {
     private int itemId;
     private CharSequence itemTitle;
@@ -203,23 +282,74 @@ class MenuParser {
   }
 
   private MenuItem item;
-  private Menu menu;
+  private boolean menuRead;
+  private int itemAnimationDuration;
+  private int background;
+  private int rippleColor;
+  private int colorInactive;
+  private int colorActive;
+  private int badgeColor;
 
   private MenuParser() {
   }
 
+  /**
+   * Returns the menu for the passed resource, built by the generated {@link MenuFactory} if one
+   * exists for it, or parsed from xml otherwise.
+   */
+  static Menu obtainMenu(final Context context, @MenuRes final int menuRes) {
+    final MenuFactory factory = getGeneratedFactory(context);
+    if (factory != null) {
+      final Menu menu = factory.createMenu(context, menuRes);
+      if (menu != null) {
+        log(TAG, INFO, "obtainMenu: %x generated", menuRes);
+        return menu;
+      }
+    }
+    return inflateMenu(context, menuRes);
+  }
+
+  @Nullable static synchronized MenuFactory getGeneratedFactory(final Context context) {
+    if (!generatedFactoryResolved) {
+      generatedFactoryResolved = true;
+      try {
+        final Class<?> clazz = Class.forName(GENERATED_FACTORY, true, context.getClassLoader());
+        generatedFactory = (MenuFactory) clazz.newInstance();
+      } catch (ClassNotFoundException e) {
+        log(TAG, INFO, "%s not found", GENERATED_FACTORY);
+      } catch (Exception e) {
+        throw new RuntimeException("Could not instantiate " + GENERATED_FACTORY, e);
+      }
+    }
+    return generatedFactory;
+  }
+
+  /**
+   * Creates a menu from already resolved values, as {@link #inflateMenu(Context, int)} would.
+   */
+  static Menu newMenu(final Context context, final int itemAnimationDuration,
+      final int background, final int rippleColor, final int colorInactive, final int colorActive,
+      final int badgeColor, final ActionTab[] tabs) {
+    return new Menu(ThemeColors.resolve(context), itemAnimationDuration, background, rippleColor,
+        colorInactive, colorActive, badgeColor, tabs, false);
+  }
+
+  static ActionTab newTab(final int itemId, @DrawableRes final int iconRes, final String title,
+      final boolean enabled, final int color) {
+    return new ActionTab(itemId, iconRes, title, enabled, color);
+  }
+
   private void readMenu(final Context context, final AttributeSet attrs) {
-    menu = new Menu(context);
     TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.BottomNavigationMenu);
 
-    menu.itemAnimationDuration =
-        a.getInt(R.styleable.BottomNavigationMenu_bbn_itemAnimationDuration,
-            context.getResources().getInteger(R.integer.ribbon_item_animation_duration));
-    menu.background = a.getColor(R.styleable.BottomNavigationMenu_android_background, 0);
-    menu.rippleColor = a.getColor(R.styleable.BottomNavigationMenu_bbn_rippleColor, 0);
-    menu.colorInactive = a.getColor(R.styleable.BottomNavigationMenu_bbn_itemColorInactive, 0);
-    menu.colorActive = a.getColor(R.styleable.BottomNavigationMenu_bbn_itemColorActive, 0);
-    menu.badgeColor = a.getColor(R.styleable.BottomNavigationMenu_bbn_badgeColor, Color.RED);
+    itemAnimationDuration = a.getInt(R.styleable.BottomNavigationMenu_bbn_itemAnimationDuration,
+        context.getResources().getInteger(R.integer.ribbon_item_animation_duration));
+    background = a.getColor(R.styleable.BottomNavigationMenu_android_background, 0);
+    rippleColor = a.getColor(R.styleable.BottomNavigationMenu_bbn_rippleColor, 0);
+    colorInactive = a.getColor(R.styleable.BottomNavigationMenu_bbn_itemColorInactive, 0);
+    colorActive = a.getColor(R.styleable.BottomNavigationMenu_bbn_itemColorActive, 0);
+    badgeColor = a.getColor(R.styleable.BottomNavigationMenu_bbn_badgeColor, Color.RED);
+    menuRead = true;
 
     a.recycle();
   }
@@ -277,11 +407,9 @@ class MenuParser {
             } else if (tagName.equals("item")) {
               if (menuParser.hasItem()) {
                 MenuItem item = menuParser.pullItem();
-                ActionTab tab = new ActionTab(item.getItemId(), item.getItemIcon(),
-                    String.valueOf(item.getItemTitle()));
-                tab.setEnabled(item.isItemEnabled());
-                tab.setColor(item.getItemColor());
-                tabs.add(tab);
+                tabs.add(newTab(item.getItemId(), item.getItemIcon(),
+                    String.valueOf(item.getItemTitle()), item.isItemEnabled(),
+                    item.getItemColor()));
               }
             } else if (tagName.equals("menu")) {
               reachedEndOfMenu = true;
@@ -301,9 +429,9 @@ class MenuParser {
     }
 
     if (menuParser.hasMenu()) {
-      Menu menu = menuParser.pullMenu();
-      menu.setItems(tabs.toArray(new ActionTab[tabs.size()]));
-      return menu;
+      return newMenu(context, menuParser.itemAnimationDuration, menuParser.background,
+          menuParser.rippleColor, menuParser.colorInactive, menuParser.colorActive,
+          menuParser.badgeColor, tabs.toArray(new ActionTab[tabs.size()]));
     }
 
     return null;
@@ -320,13 +448,7 @@ class MenuParser {
   }
 
   public boolean hasMenu() {
-    return null != menu;
-  }
-
-  private Menu pullMenu() {
-    Menu current = menu;
-    menu = null;
-    return current;
+    return menuRead;
   }
 
   /**
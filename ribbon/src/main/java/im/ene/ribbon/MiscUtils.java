@@ -120,7 +120,7 @@ final class MiscUtils {
     return gravity == Gravity.BOTTOM;
   }
 
-  protected static void switchColor(final BottomNavigationView navigation, final View v,
+  protected static void switchColor(final BottomNavigationView navigation,
       final View backgroundOverlay, final ColorDrawable backgroundDrawable, final int newColor) {
 
     backgroundOverlay.clearAnimation();
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2016 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alessandro Crugnola
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package im.ene.ribbon;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.os.Build;
+import android.provider.Settings;
+import android.support.annotation.Nullable;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.animation.Interpolator;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Advances all the animations of a {@link BottomNavigationView} from a single
+ * {@link Choreographer.FrameCallback}: the tab state changes, the shifting tab widths and the
+ * badge fade-ins.
+ *
+ * Each frame updates every running animation, then invalidates each view they changed once. The
+ * frame callback is only posted while an animation runs. Durations follow the system animator
+ * duration scale like the platform animators: with a scale of 0 the animations jump to their end.
+ *
+ * The hide/show animation of {@link BottomNavigationBehavior} is not driven by this clock: it
+ * moves the navigation view itself within the CoordinatorLayout, through a ViewPropertyAnimator
+ * which already follows the duration scale.
+ */
+final class RibbonAnimationClock implements Choreographer.FrameCallback {
+
+  /**
+   * Animation driven by a clock. An instance is meant to be kept and started again: starting it
+   * while it runs restarts it, from the start values the caller set on the subclass.
+   */
+  abstract static class Animation {
+    private final Interpolator interpolator;
+    private long duration;
+    private RibbonAnimationClock clock;
+    private View target;
+    private long startTime;
+
+    Animation(final long duration, @Nullable final Interpolator interpolator) {
+      this.duration = duration;
+      this.interpolator = interpolator;
+    }
+
+    final void setDuration(final long duration) {
+      this.duration = duration;
+    }
+
+    final boolean isRunning() {
+      return clock != null;
+    }
+
+    /**
+     * Starts the animation on the clock, or jumps to its end if there is no clock, as for a view
+     * which isn't attached.
+     *
+     * @param target the view redrawn at each frame
+     */
+    final void start(@Nullable final RibbonAnimationClock clock, final View target) {
+      if (this.clock != null) {
+        // restarted while running: no end callback, the next frame continues from here
+        this.clock.animations.remove(this);
+      } else {
+        this.target = target;
+        onStart();
+      }
+      startTime = -1;
+
+      if (clock != null && clock.animations.isEmpty()) {
+        clock.updateDurationScale(target.getContext());
+      }
+
+      if (clock == null || clock.durationScale == 0) {
+        this.clock = null;
+        onUpdate(1);
+        target.invalidate();
+        onEnd(true);
+        return;
+      }
+
+      this.clock = clock;
+      clock.animations.add(this);
+      clock.schedule();
+    }
+
+    /**
+     * Stops the animation where it is.
+     */
+    final void cancel() {
+      if (clock != null) {
+        clock.animations.remove(this);
+        clock = null;
+        onEnd(false);
+      }
+    }
+
+    /**
+     * Stops the animation and applies its final frame.
+     */
+    final void end() {
+      if (clock != null) {
+        clock.animations.remove(this);
+        clock = null;
+        onUpdate(1);
+        target.invalidate();
+        onEnd(true);
+      }
+    }
+
+    /**
+     * Advances the animation, returns false after its last frame.
+     */
+    private boolean advance(final long frameTimeMillis) {
+      if (startTime < 0) {
+        startTime = frameTimeMillis;
+      }
+      final float scaledDuration = duration * clock.durationScale;
+      final float elapsed = scaledDuration > 0
+          ? Math.min(1f, (frameTimeMillis - startTime) / scaledDuration) : 1f;
+      onUpdate(interpolator != null ? interpolator.getInterpolation(elapsed) : elapsed);
+      clock.invalidate(target);
+      return elapsed < 1f;
+    }
+
+    /**
+     * Called when the animation starts, but not when it is restarted while running.
+     */
+    void onStart() {
+    }
+
+    /**
+     * Applies the interpolated fraction of the animation, without invalidating the target.
+     */
+    abstract void onUpdate(float fraction);
+
+    /**
+     * @param finished false if the animation has been cancelled
+     */
+    void onEnd(final boolean finished) {
+    }
+  }
+
+  private final List<Animation> animations = new ArrayList<>();
+  private final List<View> dirtyViews = new ArrayList<>();
+  private boolean scheduled;
+
+  /**
+   * System animator duration scale, read again each time the clock starts from idle
+   */
+  private float durationScale = 1f;
+
+  @SuppressWarnings("deprecation") private void updateDurationScale(final Context context) {
+    final ContentResolver resolver = context.getContentResolver();
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+      durationScale =
+          Settings.Global.getFloat(resolver, Settings.Global.ANIMATOR_DURATION_SCALE, 1f);
+    } else {
+      durationScale =
+          Settings.System.getFloat(resolver, Settings.System.ANIMATOR_DURATION_SCALE, 1f);
+    }
+  }
+
+  private void schedule() {
+    if (!scheduled) {
+      scheduled = true;
+      Choreographer.getInstance().postFrameCallback(this);
+    }
+  }
+
+  private void invalidate(final View view) {
+    if (!dirtyViews.contains(view)) {
+      dirtyViews.add(view);
+    }
+  }
+
+  @Override public void doFrame(final long frameTimeNanos) {
+    scheduled = false;
+    final long frameTimeMillis = frameTimeNanos / 1000000;
+
+    // animations started by the end callbacks are appended, and advanced from the next frame
+    for (int i = animations.size() - 1; i >= 0; i--) {
+      if (i >= animations.size()) {
+        continue;
+      }
+      final Animation animation = animations.get(i);
+      if (!animation.advance(frameTimeMillis)) {
+        animations.remove(i);
+        animation.clock = null;
+        animation.onEnd(true);
+      }
+    }
+
+    for (int i = 0; i < dirtyViews.size(); i++) {
+      dirtyViews.get(i).invalidate();
+    }
+    dirtyViews.clear();
+
+    if (!animations.isEmpty()) {
+      schedule();
+    }
+  }
+
+  /**
+   * Applies the final frame of all the running animations and stops the clock.
+   */
+  void endAll() {
+    while (!animations.isEmpty()) {
+      animations.get(animations.size() - 1).end();
+    }
+    if (scheduled) {
+      scheduled = false;
+      Choreographer.getInstance().removeFrameCallback(this);
+    }
+  }
+}
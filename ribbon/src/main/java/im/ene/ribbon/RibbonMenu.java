@@ -0,0 +1,279 @@
+/*
+ * Copyright 2016 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alessandro Crugnola
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package im.ene.ribbon;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Color;
+import android.support.annotation.ColorInt;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.IdRes;
+import android.support.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Menu built at runtime, as an alternative to the {@code ribbon_menu} xml resource. Instances
+ * are immutable: use {@link #buildUpon()} to derive a modified copy. The items which are not
+ * modified are shared between the two menus.
+ *
+ * <pre>
+ * RibbonMenu menu = new RibbonMenu.Builder()
+ *     .add(R.id.home, R.drawable.ic_home, "Home")
+ *     .add(R.id.search, R.drawable.ic_search, "Search")
+ *     .add(R.id.profile, R.drawable.ic_profile, "Profile")
+ *     .build();
+ * bottomNavigation.setMenu(menu);
+ * </pre>
+ */
+public final class RibbonMenu {
+
+  private static final int DEFAULT_DURATION = -1;
+
+  private final ActionTab[] tabs;
+  private final int itemAnimationDuration;
+  private final int background;
+  private final int rippleColor;
+  private final int colorInactive;
+  private final int colorActive;
+  private final int badgeColor;
+
+  // last conversion, reused while the theme and the configuration don't change, as the menu
+  // memoizes its style
+  private MenuParser.Menu menu;
+  private MenuCache.ThemeKey menuTheme;
+  private Configuration menuConfiguration;
+
+  private RibbonMenu(final Builder builder) {
+    this.tabs = builder.tabs.toArray(new ActionTab[builder.tabs.size()]);
+    this.itemAnimationDuration = builder.itemAnimationDuration;
+    this.background = builder.background;
+    this.rippleColor = builder.rippleColor;
+    this.colorInactive = builder.colorInactive;
+    this.colorActive = builder.colorActive;
+    this.badgeColor = builder.badgeColor;
+  }
+
+  public int size() {
+    return tabs.length;
+  }
+
+  public ActionTab getItemAt(final int index) {
+    return tabs[index];
+  }
+
+  /**
+   * Returns the position of the item with the passed id, or -1 if there is none.
+   */
+  public int indexOf(@IdRes final int itemId) {
+    for (int i = 0; i < tabs.length; i++) {
+      if (tabs[i].getItemId() == itemId) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns a builder initialized with the items and colors of this menu.
+   */
+  public Builder buildUpon() {
+    return new Builder(this);
+  }
+
+  /**
+   * Returns the menu used by {@link BottomNavigationView}, with the theme colors of the passed
+   * context as fallbacks and the dimensions of its configuration.
+   */
+  synchronized MenuParser.Menu toMenu(final Context context) {
+    final MenuCache.ThemeKey theme = new MenuCache.ThemeKey(context.getTheme());
+    final Configuration configuration = context.getResources().getConfiguration();
+    if (menu == null || !menuTheme.equals(theme) || !menuConfiguration.equals(configuration)) {
+      final int duration = itemAnimationDuration != DEFAULT_DURATION ? itemAnimationDuration
+          : context.getResources().getInteger(R.integer.ribbon_item_animation_duration);
+      menu = new MenuParser.Menu(MenuParser.ThemeColors.resolve(context), duration, background,
+          rippleColor, colorInactive, colorActive, badgeColor, tabs, false);
+      menuTheme = theme;
+      menuConfiguration = new Configuration(configuration);
+    }
+    return menu;
+  }
+
+  @Override public String toString() {
+    return "RibbonMenu{" + Arrays.toString(tabs) + '}';
+  }
+
+  public static final class Builder {
+    private final List<ActionTab> tabs;
+    private int itemAnimationDuration;
+    private int background;
+    private int rippleColor;
+    private int colorInactive;
+    private int colorActive;
+    private int badgeColor;
+
+    public Builder() {
+      this.tabs = new ArrayList<>(5);
+      this.itemAnimationDuration = DEFAULT_DURATION;
+      this.badgeColor = Color.RED;
+    }
+
+    private Builder(final RibbonMenu menu) {
+      this.tabs = new ArrayList<>(Arrays.asList(menu.tabs));
+      this.itemAnimationDuration = menu.itemAnimationDuration;
+      this.background = menu.background;
+      this.rippleColor = menu.rippleColor;
+      this.colorInactive = menu.colorInactive;
+      this.colorActive = menu.colorActive;
+      this.badgeColor = menu.badgeColor;
+    }
+
+    /**
+     * Appends a new enabled item, without a color.
+     *
+     * @throws IllegalArgumentException if the menu already has an item with the same id
+     */
+    public Builder add(@IdRes final int itemId, @DrawableRes final int iconRes,
+        final String title) {
+      return add(tabs.size(), itemId, iconRes, title);
+    }
+
+    /**
+     * Inserts a new enabled item, without a color, at the passed position.
+     *
+     * @throws IllegalArgumentException if the menu already has an item with the same id
+     */
+    public Builder add(final int index, @IdRes final int itemId, @DrawableRes final int iconRes,
+        final String title) {
+      if (indexOf(itemId) >= 0) {
+        throw new IllegalArgumentException("Duplicated item id " + itemId);
+      }
+      tabs.add(index, new ActionTab(itemId, iconRes, title, true, 0));
+      return this;
+    }
+
+    public Builder remove(@IdRes final int itemId) {
+      tabs.remove(require(itemId));
+      return this;
+    }
+
+    public Builder setTitle(@IdRes final int itemId, final String title) {
+      final int index = require(itemId);
+      tabs.set(index, tabs.get(index).withTitle(title));
+      return this;
+    }
+
+    public Builder setIcon(@IdRes final int itemId, @DrawableRes final int iconRes) {
+      final int index = require(itemId);
+      tabs.set(index, tabs.get(index).withIcon(iconRes));
+      return this;
+    }
+
+    /**
+     * Sets the background color used while the item is selected, for shifting menus. 0 means no
+     * color.
+     */
+    public Builder setColor(@IdRes final int itemId, @ColorInt final int color) {
+      final int index = require(itemId);
+      tabs.set(index, tabs.get(index).withColor(color));
+      return this;
+    }
+
+    public Builder setEnabled(@IdRes final int itemId, final boolean enabled) {
+      final int index = require(itemId);
+      tabs.set(index, tabs.get(index).withEnabled(enabled));
+      return this;
+    }
+
+    public Builder setItemAnimationDuration(final int duration) {
+      this.itemAnimationDuration = duration;
+      return this;
+    }
+
+    /**
+     * Colors set to 0 fall back to the theme colors, as they do for xml menus.
+     */
+    public Builder setBackground(@ColorInt final int background) {
+      this.background = background;
+      return this;
+    }
+
+    public Builder setRippleColor(@ColorInt final int rippleColor) {
+      this.rippleColor = rippleColor;
+      return this;
+    }
+
+    public Builder setColorInactive(@ColorInt final int colorInactive) {
+      this.colorInactive = colorInactive;
+      return this;
+    }
+
+    public Builder setColorActive(@ColorInt final int colorActive) {
+      this.colorActive = colorActive;
+      return this;
+    }
+
+    public Builder setBadgeColor(@ColorInt final int badgeColor) {
+      this.badgeColor = badgeColor;
+      return this;
+    }
+
+    @NonNull public RibbonMenu build() {
+      return new RibbonMenu(this);
+    }
+
+    private int indexOf(final int itemId) {
+      for (int i = 0; i < tabs.size(); i++) {
+        if (tabs.get(i).getItemId() == itemId) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private int require(final int itemId) {
+      final int index = indexOf(itemId);
+      if (index < 0) {
+        throw new IllegalArgumentException("No item with id " + itemId);
+      }
+      return index;
+    }
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2016 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alessandro Crugnola
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package im.ene.ribbon;
+
+import android.content.res.Resources;
+
+/**
+ * Colors, durations and sizes used to draw a menu, resolved once and shared by the tab layouts
+ * and all their tab views. Obtained with {@link MenuParser.Menu#getStyle(Resources)}.
+ */
+final class RibbonStyle {
+
+  // colors
+  final int background;
+  final int colorActive;
+  final int colorInactive;
+  final int rippleColor;
+  final int badgeColor;
+
+  // duration
+  final long itemAnimationDuration;
+
+  // shifting items
+  final int shiftingActiveItemPaddingBottom;
+  final int shiftingInactiveItemPaddingBottom;
+  final int shiftingItemPaddingTop;
+  final int shiftingItemIconSize;
+  final int shiftingTextSize;
+  final int shiftingActiveItemMaxWidth;
+  final int shiftingActiveItemMinWidth;
+  final int shiftingInactiveItemMaxWidth;
+  final int shiftingInactiveItemMinWidth;
+
+  // fixed items
+  final int fixedActiveItemMaxWidth;
+  final int fixedActiveItemMinWidth;
+  final int fixedActiveItemPaddingTop;
+  final int fixedInactiveItemPaddingTop;
+  final int fixedItemPaddingBottom;
+  final int fixedItemPaddingHorizontal;
+  final int fixedInactiveItemTextSize;
+  final int fixedItemIconSize;
+
+  // tablet items
+  final int tabletItemIconSize;
+  final int tabletItemHeight;
+  final int tabletLayoutPaddingTop;
+
+  private ColorRamp colorRamp;
+
+  RibbonStyle(final Resources res, final MenuParser.Menu menu) {
+    this.background = menu.getBackground();
+    this.colorActive = menu.getColorActive();
+    this.colorInactive = menu.getColorInactive();
+    this.rippleColor = menu.getRippleColor();
+    this.badgeColor = menu.getBadgeColor();
+
+    this.itemAnimationDuration = menu.getItemAnimationDuration();
+
+    this.shiftingActiveItemPaddingBottom =
+        res.getDimensionPixelSize(R.dimen.ribbon_shifting_active_item_padding_bottom);
+    this.shiftingInactiveItemPaddingBottom =
+        res.getDimensionPixelSize(R.dimen.ribbon_shifting_inactive_item_padding_bottom);
+    this.shiftingItemPaddingTop =
+        res.getDimensionPixelSize(R.dimen.ribbon_shifting_item_padding_top);
+    this.shiftingItemIconSize = res.getDimensionPixelSize(R.dimen.ribbon_shifting_item_icon_size);
+    this.shiftingTextSize = res.getDimensionPixelSize(R.dimen.ribbon_shifting_text_size);
+    this.shiftingActiveItemMaxWidth =
+        res.getDimensionPixelSize(R.dimen.ribbon_shifting_active_item_max_width);
+    this.shiftingActiveItemMinWidth =
+        res.getDimensionPixelSize(R.dimen.ribbon_shifting_active_item_min_width);
+    this.shiftingInactiveItemMaxWidth =
+        res.getDimensionPixelSize(R.dimen.ribbon_shifting_inactive_item_max_width);
+    this.shiftingInactiveItemMinWidth =
+        res.getDimensionPixelSize(R.dimen.ribbon_shifting_inactive_item_min_width);
+
+    this.fixedActiveItemMaxWidth =
+        res.getDimensionPixelSize(R.dimen.ribbon_fixed_active_item_max_width);
+    this.fixedActiveItemMinWidth =
+        res.getDimensionPixelSize(R.dimen.ribbon_fixed_active_item_min_width);
+    this.fixedActiveItemPaddingTop =
+        res.getDimensionPixelSize(R.dimen.ribbon_fixed_active_item_padding_top);
+    this.fixedInactiveItemPaddingTop =
+        res.getDimensionPixelSize(R.dimen.ribbon_fixed_inactive_item_padding_top);
+    this.fixedItemPaddingBottom =
+        res.getDimensionPixelSize(R.dimen.ribbon_fixed_item_padding_bottom);
+    this.fixedItemPaddingHorizontal =
+        res.getDimensionPixelSize(R.dimen.ribbon_fixed_item_padding_horizontal);
+    this.fixedInactiveItemTextSize =
+        res.getDimensionPixelSize(R.dimen.ribbon_fixed_inactive_item_text_size);
+    this.fixedItemIconSize = res.getDimensionPixelSize(R.dimen.ribbon_fixed_item_icon_size);
+
+    this.tabletItemIconSize = res.getDimensionPixelSize(R.dimen.ribbon_tablet_item_icon_size);
+    this.tabletItemHeight = res.getDimensionPixelSize(R.dimen.ribbon_tablet_item_height);
+    this.tabletLayoutPaddingTop =
+        res.getDimensionPixelSize(R.dimen.ribbon_tablet_layout_padding_top);
+  }
+
+  /**
+   * Returns the colors between {@link #colorInactive} and {@link #colorActive}, shared by all the
+   * tab views using this style.
+   */
+  ColorRamp getColorRamp() {
+    if (colorRamp == null) {
+      colorRamp = new ColorRamp(colorInactive, colorActive);
+    }
+    return colorRamp;
+  }
+
+  /**
+   * Two styles are equal if tab views built with one can be reused as they are with the other.
+   */
+  @Override public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof RibbonStyle)) {
+      return false;
+    }
+    final RibbonStyle that = (RibbonStyle) o;
+    return background == that.background
+        && colorActive == that.colorActive
+        && colorInactive == that.colorInactive
+        && rippleColor == that.rippleColor
+        && badgeColor == that.badgeColor
+        && itemAnimationDuration == that.itemAnimationDuration
+        && shiftingActiveItemPaddingBottom == that.shiftingActiveItemPaddingBottom
+        && shiftingInactiveItemPaddingBottom == that.shiftingInactiveItemPaddingBottom
+        && shiftingItemPaddingTop == that.shiftingItemPaddingTop
+        && shiftingItemIconSize == that.shiftingItemIconSize
+        && shiftingTextSize == that.shiftingTextSize
+        && shiftingActiveItemMaxWidth == that.shiftingActiveItemMaxWidth
+        && shiftingActiveItemMinWidth == that.shiftingActiveItemMinWidth
+        && shiftingInactiveItemMaxWidth == that.shiftingInactiveItemMaxWidth
+        && shiftingInactiveItemMinWidth == that.shiftingInactiveItemMinWidth
+        && fixedActiveItemMaxWidth == that.fixedActiveItemMaxWidth
+        && fixedActiveItemMinWidth == that.fixedActiveItemMinWidth
+        && fixedActiveItemPaddingTop == that.fixedActiveItemPaddingTop
+        && fixedInactiveItemPaddingTop == that.fixedInactiveItemPaddingTop
+        && fixedItemPaddingBottom == that.fixedItemPaddingBottom
+        && fixedItemPaddingHorizontal == that.fixedItemPaddingHorizontal
+        && fixedInactiveItemTextSize == that.fixedInactiveItemTextSize
+        && fixedItemIconSize == that.fixedItemIconSize
+        && tabletItemIconSize == that.tabletItemIconSize
+        && tabletItemHeight == that.tabletItemHeight
+        && tabletLayoutPaddingTop == that.tabletLayoutPaddingTop;
+  }
+
+  @Override public int hashCode() {
+    int result = background;
+    result = 31 * result + colorActive;
+    result = 31 * result + colorInactive;
+    result = 31 * result + rippleColor;
+    result = 31 * result + badgeColor;
+    result = 31 * result + (int) (itemAnimationDuration ^ (itemAnimationDuration >>> 32));
+    result = 31 * result + shiftingActiveItemPaddingBottom;
+    result = 31 * result + shiftingInactiveItemPaddingBottom;
+    result = 31 * result + shiftingItemPaddingTop;
+    result = 31 * result + shiftingItemIconSize;
+    result = 31 * result + shiftingTextSize;
+    result = 31 * result + shiftingActiveItemMaxWidth;
+    result = 31 * result + shiftingActiveItemMinWidth;
+    result = 31 * result + shiftingInactiveItemMaxWidth;
+    result = 31 * result + shiftingInactiveItemMinWidth;
+    result = 31 * result + fixedActiveItemMaxWidth;
+    result = 31 * result + fixedActiveItemMinWidth;
+    result = 31 * result + fixedActiveItemPaddingTop;
+    result = 31 * result + fixedInactiveItemPaddingTop;
+    result = 31 * result + fixedItemPaddingBottom;
+    result = 31 * result + fixedItemPaddingHorizontal;
+    result = 31 * result + fixedInactiveItemTextSize;
+    result = 31 * result + fixedItemIconSize;
+    result = 31 * result + tabletItemIconSize;
+    result = 31 * result + tabletItemHeight;
+    result = 31 * result + tabletLayoutPaddingTop;
+    return result;
+  }
+
+  @Override public String toString() {
+    return String.format("RibbonStyle{background:%x, colorActive:%x, colorInactive:%x}",
+        background, colorActive, colorInactive);
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2016 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alessandro Crugnola
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package im.ene.ribbon;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static android.util.Log.INFO;
+import static android.util.Log.WARN;
+import static im.ene.ribbon.MiscUtils.log;
+
+/**
+ * Process wide registry of the typefaces loaded from the assets for the tab titles.
+ *
+ * The fonts are read on a background thread and kept until {@link #release(String)} or
+ * {@link #clear()} is called, so a bar never falls back to the default typeface because its font
+ * has been garbage collected.
+ *
+ * @see BottomNavigationView#setDefaultTypeface(String)
+ */
+public final class RibbonTypefaces {
+  private static final String TAG = RibbonTypefaces.class.getSimpleName();
+
+  /**
+   * Notified on the main thread once a typeface is loaded. Internal to the library, as are the
+   * methods taking one: apps only prewarm, peek and release fonts.
+   */
+  /* package */ interface Callback {
+    /**
+     * @param typeface the loaded typeface, or null if the font couldn't be read
+     */
+    void onTypefaceLoaded(@NonNull String path, @Nullable Typeface typeface);
+  }
+
+  private static final Object LOCK = new Object();
+  private static final Map<String, Typeface> TYPEFACES = new HashMap<>();
+  private static final Map<String, List<Callback>> PENDING = new HashMap<>();
+  private static final Handler HANDLER = new Handler(Looper.getMainLooper());
+
+  private RibbonTypefaces() {
+    throw new AssertionError("Illegal initialization!");
+  }
+
+  /**
+   * Starts loading the passed fonts in background, so that the bars using them display them
+   * right away. Can be called from any thread: no callback is registered, so nothing but the
+   * application context is held while the fonts are read. The fonts then stay in memory until
+   * {@link #release(String)} or {@link #clear()}.
+   *
+   * @param context any context, only its assets are used
+   * @param paths the fonts paths in the assets
+   */
+  public static void prewarm(@NonNull final Context context, @NonNull final String... paths) {
+    for (String path : paths) {
+      load(context, path, null);
+    }
+  }
+
+  /**
+   * Returns the typeface, or null if it isn't loaded yet.
+   *
+   * @param path the font path in the assets
+   */
+  @Nullable public static Typeface peek(@NonNull final String path) {
+    synchronized (LOCK) {
+      return TYPEFACES.get(path);
+    }
+  }
+
+  /**
+   * Drops the typeface. The bars already displaying it keep it.
+   *
+   * @param path the font path in the assets
+   */
+  public static void release(@NonNull final String path) {
+    synchronized (LOCK) {
+      TYPEFACES.remove(path);
+    }
+  }
+
+  /**
+   * Drops all the loaded typefaces
+   */
+  public static void clear() {
+    synchronized (LOCK) {
+      TYPEFACES.clear();
+    }
+  }
+
+  /**
+   * Loads the typeface in background if needed, then hands it to the callback on the main
+   * thread, even if the font is already loaded, so it can be called from any thread. Concurrent
+   * requests for the same font read it once. The callback is held strongly until the font is
+   * read, and can't be removed: callers holding a view must ignore late results, as
+   * {@link BottomNavigationView} does.
+   */
+  static void load(@NonNull final Context context, @NonNull final String path,
+      @Nullable final Callback callback) {
+    final Typeface loaded;
+    synchronized (LOCK) {
+      loaded = TYPEFACES.get(path);
+      if (loaded == null) {
+        List<Callback> callbacks = PENDING.get(path);
+        final boolean started = callbacks != null;
+        if (!started) {
+          callbacks = new ArrayList<>();
+          PENDING.put(path, callbacks);
+        }
+        if (callback != null) {
+          callbacks.add(callback);
+        }
+        if (started) {
+          return;
+        }
+      }
+    }
+
+    if (loaded != null) {
+      if (callback != null) {
+        HANDLER.post(new Runnable() {
+          @Override public void run() {
+            callback.onTypefaceLoaded(path, loaded);
+          }
+        });
+      }
+      return;
+    }
+
+    final Context appContext = context.getApplicationContext();
+    AsyncMenuInflater.EXECUTOR.execute(new Runnable() {
+      @Override public void run() {
+        final Typeface typeface = createFromAsset(appContext, path);
+        final List<Callback> callbacks;
+        synchronized (LOCK) {
+          if (typeface != null) {
+            TYPEFACES.put(path, typeface);
+          }
+          callbacks = PENDING.remove(path);
+        }
+
+        HANDLER.post(new Runnable() {
+          @Override public void run() {
+            for (Callback callback : callbacks) {
+              callback.onTypefaceLoaded(path, typeface);
+            }
+          }
+        });
+      }
+    });
+  }
+
+  @Nullable private static Typeface createFromAsset(final Context context, final String path) {
+    log(TAG, INFO, "createFromAsset: %s", path);
+    try {
+      return Typeface.createFromAsset(context.getAssets(), path);
+    } catch (RuntimeException e) {
+      log(TAG, WARN, "createFromAsset: %s can't be read, %s", path, e);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alessandro Crugnola
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package im.ene.ribbon;
+
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.Nullable;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.graphics.drawable.DrawableCompat;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Single ripple drawn by a tab layout under the touched tab, instead of one ripple background per
+ * tab view. It follows the bounds, the state and the hotspot of the tab being pressed.
+ */
+final class SharedRipple {
+
+  /**
+   * Tab layout owning a shared ripple. It forwards its drawing and drawable callbacks to the
+   * static helpers below, which accept a null ripple when the mode is disabled.
+   */
+  interface Host {
+    @Nullable SharedRipple getSharedRipple();
+  }
+
+  private final ViewGroup host;
+  private final Drawable drawable;
+  private View target;
+
+  // latest hotspot reported by a tab, which comes before its pressed state
+  private View hotspotChild;
+  private float hotspotX;
+  private float hotspotY;
+
+  private SharedRipple(final ViewGroup host) {
+    this.host = host;
+    this.drawable =
+        ContextCompat.getDrawable(host.getContext(), R.drawable.ribbon_ripple_selector).mutate();
+    this.drawable.setCallback(host);
+  }
+
+  /**
+   * Returns the ripple the host layout should use: {@code current}, recolored, if the mode is
+   * enabled, a new one if needed, or null if the mode is disabled.
+   */
+  @Nullable static SharedRipple update(@Nullable final SharedRipple current, final ViewGroup host,
+      final boolean enabled, final int color) {
+    if (!enabled) {
+      if (current != null) {
+        current.drawable.setCallback(null);
+        host.invalidate();
+      }
+      return null;
+    }
+
+    final SharedRipple ripple = current != null ? current : new SharedRipple(host);
+    MiscUtils.setDrawableColor(ripple.drawable, color);
+    return ripple;
+  }
+
+  /**
+   * Called by the host from {@code childDrawableStateChanged}.
+   */
+  static void onChildStateChanged(@Nullable final SharedRipple ripple, final View child) {
+    if (ripple == null) {
+      return;
+    }
+
+    if (child.isPressed() && hasRipple(child)) {
+      if (ripple.target != child) {
+        ripple.target = child;
+        if (ripple.hotspotChild == child) {
+          ripple.applyHotspot();
+        }
+        ripple.drawable.jumpToCurrentState();
+      }
+    }
+
+    if (child == ripple.target) {
+      ripple.drawable.setState(child.getDrawableState());
+    }
+  }
+
+  /**
+   * Called by a tab when its hotspot moved, with coordinates relative to the tab.
+   */
+  void onChildHotspotChanged(final View child, final float x, final float y) {
+    if (child != target && !hasRipple(child)) {
+      return;
+    }
+
+    hotspotChild = child;
+    hotspotX = x;
+    hotspotY = y;
+    if (child == target) {
+      applyHotspot();
+    }
+  }
+
+  private void applyHotspot() {
+    DrawableCompat.setHotspot(drawable,
+        hotspotChild.getLeft() + ViewCompat.getTranslationX(hotspotChild) + hotspotX,
+        hotspotChild.getTop() + hotspotY);
+  }
+
+  private static boolean hasRipple(final View child) {
+    return child instanceof ActionTabView && ((ActionTabView) child).hasRipple();
+  }
+
+  /**
+   * Called by the host from {@code dispatchDraw}, before drawing its tabs.
+   */
+  static void draw(@Nullable final SharedRipple ripple, final Canvas canvas) {
+    if (ripple == null || ripple.target == null) {
+      return;
+    }
+
+    final View target = ripple.target;
+    if (target.getParent() != ripple.host) {
+      ripple.target = null;
+      return;
+    }
+    // the shifting tabs are translated while they are animated
+    final int translationX = Math.round(ViewCompat.getTranslationX(target));
+    ripple.drawable.setBounds(target.getLeft() + translationX, target.getTop(),
+        target.getRight() + translationX, target.getBottom());
+    ripple.drawable.draw(canvas);
+  }
+
+  /**
+   * Called by the host from {@code verifyDrawable}.
+   */
+  static boolean verifyDrawable(@Nullable final SharedRipple ripple, final Drawable who) {
+    return ripple != null && who == ripple.drawable;
+  }
+
+  /**
+   * Called by the host from {@code jumpDrawablesToCurrentState}.
+   */
+  static void jumpToCurrentState(@Nullable final SharedRipple ripple) {
+    if (ripple != null) {
+      ripple.drawable.jumpToCurrentState();
+    }
+  }
+}
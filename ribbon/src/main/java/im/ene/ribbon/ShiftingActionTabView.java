@@ -38,16 +38,10 @@
 
 package im.ene.ribbon;
 
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
-import android.animation.ValueAnimator;
 import android.annotation.SuppressLint;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.PorterDuff;
-import android.view.animation.DecelerateInterpolator;
-import android.view.animation.Interpolator;
 
 import static android.util.Log.INFO;
 import static android.util.Log.VERBOSE;
@@ -65,46 +59,32 @@ public class ShiftingActionTabView extends ActionTabView {
   private int centerY;
   private final float maxAlpha;
   private final float minAlpha;
-  private final Interpolator interpolator = new DecelerateInterpolator();
   private float textWidth;
-  private long animationDuration;
-  private final int colorActive;
-  private final int colorInactive;
   private float textX;
   private int textY;
 
   public ShiftingActionTabView(final BottomNavigationView parent, boolean expanded,
-      final MenuParser.Menu menu) {
-    super(parent, expanded, menu);
-
-    this.paddingTop =
-        getResources().getDimensionPixelSize(R.dimen.ribbon_shifting_item_padding_top);
-    this.paddingBottomActive =
-        getResources().getDimensionPixelSize(R.dimen.ribbon_shifting_active_item_padding_bottom);
-    this.paddingBottomInactive =
-        getResources().getDimensionPixelSize(R.dimen.ribbon_shifting_inactive_item_padding_bottom);
-    this.iconSize = getResources().getDimensionPixelSize(R.dimen.ribbon_shifting_item_icon_size);
-    this.textSize = getResources().getDimensionPixelSize(R.dimen.ribbon_shifting_text_size);
-
-    this.animationDuration = menu.getItemAnimationDuration();
-    this.colorActive = menu.getColorActive();
-    this.colorInactive = menu.getColorInactive();
-    this.minAlpha = Color.alpha(this.colorInactive) / ALPHA_MAX;
-    this.maxAlpha = Math.max((float) Color.alpha(colorActive) / ALPHA_MAX, minAlpha);
-
-    this.centerY = expanded ? paddingTop : paddingBottomInactive;
+      final RibbonStyle style) {
+    super(parent, expanded, style);
+
+    this.paddingTop = style.shiftingItemPaddingTop;
+    this.paddingBottomActive = style.shiftingActiveItemPaddingBottom;
+    this.paddingBottomInactive = style.shiftingInactiveItemPaddingBottom;
+    this.iconSize = style.shiftingItemIconSize;
+    this.textSize = style.shiftingTextSize;
+
+    setAnimationDuration(style.itemAnimationDuration * 2);
+    this.minAlpha = Color.alpha(style.colorInactive) / ALPHA_MAX;
+    this.maxAlpha = Math.max((float) Color.alpha(style.colorActive) / ALPHA_MAX, minAlpha);
+
     this.textPaint.setHinting(Paint.HINTING_ON);
     this.textPaint.setLinearText(true);
     this.textPaint.setSubpixelText(true);
     this.textPaint.setTextSize(textSize);
-    this.textPaint.setColor(colorActive);
-
-    if (!expanded) {
-      this.textPaint.setAlpha(0);
-    }
+    this.textPaint.setColor(style.colorActive);
+    onPositionChanged(getPosition());
 
     if (BottomNavigationView.DEBUG) {
-      log(TAG, VERBOSE, "colors: %x, %x", colorInactive, colorActive);
       log(TAG, VERBOSE, "alphas: %g, %g", minAlpha, maxAlpha);
     }
   }
@@ -113,53 +93,22 @@ public class ShiftingActionTabView extends ActionTabView {
   protected void onStatusChanged(final boolean expanded, final int size, final boolean animate) {
     log(TAG, INFO, "onStatusChanged(%b, %d)", expanded, size);
 
-    if (!animate) {
-      updateLayoutOnAnimation(size, 1, expanded);
-      setCenterY(expanded ? paddingTop : paddingBottomInactive);
-      return;
-    }
+    // the width is applied by the next layout pass, ShiftingTabLayout animates it until then
+    getLayoutParams().width = size;
 
-    final AnimatorSet set = new AnimatorSet();
-    set.setDuration(animationDuration * 2);
-    set.setInterpolator(interpolator);
-    final ValueAnimator widthAnimator = ValueAnimator.ofInt(getLayoutParams().width, size);
-    final ValueAnimator centerYAnimator =
-        ObjectAnimator.ofInt(this, "centerY", expanded ? paddingBottomInactive : paddingTop,
-            expanded ? paddingTop : paddingBottomInactive);
-
-    widthAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-      @Override public void onAnimationUpdate(final ValueAnimator animation) {
-        int size = (int) animation.getAnimatedValue();
-        final float fraction = animation.getAnimatedFraction();
-        updateLayoutOnAnimation(size, fraction, expanded);
-      }
-    });
-
-    set.playTogether(widthAnimator, centerYAnimator);
-    set.start();
   }
 
-  private void updateLayoutOnAnimation(final int size, final float fraction,
-      final boolean expanded) {
-    getLayoutParams().width = size;
-
-    if (expanded) {
-      final int color = (Integer) evaluator.evaluate(fraction, colorInactive, colorActive);
-      icon.setColorFilter(color, PorterDuff.Mode.SRC_ATOP);
-      icon.setAlpha((int) ((minAlpha + (fraction * (maxAlpha - minAlpha))) * ALPHA_MAX));
-      textPaint.setAlpha((int) (((fraction * (maxAlpha))) * ALPHA_MAX));
-    } else {
-      final int color = (Integer) evaluator.evaluate(fraction, colorActive, colorInactive);
-      final float alpha = 1.0F - fraction;
-      icon.setColorFilter(color, PorterDuff.Mode.SRC_ATOP);
-      icon.setAlpha((int) ((minAlpha + (alpha * (maxAlpha - minAlpha))) * ALPHA_MAX));
-      textPaint.setAlpha((int) (((alpha * (maxAlpha))) * ALPHA_MAX));
+  @Override protected void onPositionChanged(final float position) {
+    if (icon != null) {
+      setIconState(position, (int) ((minAlpha + (position * (maxAlpha - minAlpha))) * ALPHA_MAX));
     }
+    textPaint.setAlpha((int) (((position * (maxAlpha))) * ALPHA_MAX));
+    moveIcon(Math.round(paddingBottomInactive + (paddingTop - paddingBottomInactive) * position));
   }
 
   private void measureText() {
     log(TAG, INFO, "measureText");
-    this.textWidth = textPaint.measureText(getAction().getTitle());
+    this.textWidth = TextCache.measure(textPaint, getAction().getTitle());
   }
 
   @Override
@@ -167,42 +116,48 @@ public class ShiftingActionTabView extends ActionTabView {
       final int bottom) {
     super.onLayout(changed, left, top, right, bottom);
 
-    if (null == this.icon) {
-      this.icon = getAction().getIcon(getContext());
-      icon.setBounds(0, 0, iconSize, iconSize);
-      icon.setColorFilter(isExpanded() ? colorActive : colorInactive, PorterDuff.Mode.SRC_ATOP);
-      icon.setAlpha((int) (isExpanded() ? maxAlpha * ALPHA_MAX : minAlpha * ALPHA_MAX));
+    final boolean iconChanged = null == this.icon;
+    if (iconChanged) {
+      loadIcon(iconSize);
+      final float position = getPosition();
+      setIconState(position, (int) ((minAlpha + (position * (maxAlpha - minAlpha))) * ALPHA_MAX));
     }
 
+    final boolean textChanged = textDirty;
     if (textDirty) {
       measureText();
       textDirty = false;
     }
 
-    if (changed) {
+    if (changed || iconChanged || textChanged) {
       int w = right - left;
       int h = bottom - top;
       int centerX = (w - iconSize) / 2;
       this.textY = h - paddingBottomActive;
       this.textX = (w - textWidth) / 2;
-      icon.setBounds(centerX, centerY, centerX + iconSize, centerY + iconSize);
+      setIconBounds(centerX, centerY, centerX + iconSize, centerY + iconSize);
     }
   }
 
   @Override protected void onDraw(final Canvas canvas) {
     super.onDraw(canvas);
-    icon.draw(canvas);
+    drawIcon(canvas);
     canvas.drawText(getAction().getTitle(), textX, textY, textPaint);
     drawBadge(canvas);
   }
 
-  @SuppressWarnings("unused") @proguard.annotation.Keep public int getCenterY() {
-    return centerY;
+  private void moveIcon(final int centerY) {
+    this.centerY = centerY;
+    // moved at draw time, the tab is only laid out again when its size changes
+    if (icon != null) {
+      final int left = icon.getBounds().left;
+      setIconBounds(left, centerY, left + iconSize, centerY + iconSize);
+    }
   }
 
-  @SuppressWarnings("unused") @proguard.annotation.Keep public void setCenterY(int value) {
-    centerY = value;
-    requestLayout();
+  @Override boolean hasRipple() {
+    // colored items show the background reveal instead
+    return getAction().getColor() == 0;
   }
 
   @Override void setAction(ActionTab item) {
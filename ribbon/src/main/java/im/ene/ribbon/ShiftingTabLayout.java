@@ -39,15 +39,23 @@
 package im.ene.ribbon;
 
 import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
 import android.support.annotation.NonNull;
+import android.support.v4.view.ViewCompat;
 import android.util.Log;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.animation.DecelerateInterpolator;
 import android.widget.LinearLayout;
 import android.widget.Toast;
+import java.util.ArrayList;
+import java.util.List;
 import proguard.annotation.Keep;
 
-public class ShiftingTabLayout extends ViewGroup implements BottomTabLayout {
+public class ShiftingTabLayout extends ViewGroup implements BottomTabLayout, SharedRipple.Host {
   private static final String TAG = ShiftingTabLayout.class.getSimpleName();
   public static final double ROUND_DECIMALS = 10d;
   public static final float RATIO_MIN_INCREASE = 0.05f;
@@ -60,23 +68,55 @@ public class ShiftingTabLayout extends ViewGroup implements BottomTabLayout {
   private int selectedIndex;
   private boolean hasFrame;
   OnItemClickListener listener;
+  private SharedRipple sharedRipple;
   private MenuParser.Menu menu;
 
-  public ShiftingTabLayout(final Context context) {
+  /**
+   * Animates the tabs widths without laying them out, see {@link #onAnimationFrame(float)}
+   */
+  private final RibbonAnimationClock.Animation animation;
+  private float[] widths = new float[0];
+  private float[] startWidths = new float[0];
+  private final Rect clipBounds = new Rect();
+
+  public ShiftingTabLayout(final Context context, final RibbonStyle style) {
     super(context);
     totalChildrenSize = 0;
-    maxActiveItemWidth =
-        getResources().getDimensionPixelSize(R.dimen.ribbon_shifting_active_item_max_width);
-    minActiveItemWidth =
-        getResources().getDimensionPixelSize(R.dimen.ribbon_shifting_active_item_min_width);
-    maxInactiveItemWidth =
-        getResources().getDimensionPixelSize(R.dimen.ribbon_shifting_inactive_item_max_width);
-    minInactiveItemWidth =
-        getResources().getDimensionPixelSize(R.dimen.ribbon_shifting_inactive_item_min_width);
+    maxActiveItemWidth = style.shiftingActiveItemMaxWidth;
+    minActiveItemWidth = style.shiftingActiveItemMinWidth;
+    maxInactiveItemWidth = style.shiftingInactiveItemMaxWidth;
+    minInactiveItemWidth = style.shiftingInactiveItemMinWidth;
+
+    // the growing tab draws outside of its current bounds, clipped by its clip bounds
+    setClipChildren(false);
+
+    animation = new RibbonAnimationClock.Animation(style.itemAnimationDuration * 2,
+        new DecelerateInterpolator()) {
+      @Override void onUpdate(final float fraction) {
+        onAnimationFrame(fraction);
+      }
+
+      @Override void onEnd(final boolean finished) {
+        if (finished) {
+          // the only layout pass of the animation, it resets the offsets
+          requestLayout();
+        }
+      }
+    };
   }
 
   @Override public void removeAll() {
+    animation.cancel();
+    resetOffsets();
+    final BottomNavigationView parent = (BottomNavigationView) getParent();
+    final ActionTabView[] views = new ActionTabView[getChildCount()];
+    for (int i = 0; i < views.length; i++) {
+      views[i] = (ActionTabView) getChildAt(i);
+    }
     removeAllViews();
+    for (ActionTabView view : views) {
+      parent.getTabViewPool().recycle(view);
+    }
     totalChildrenSize = 0;
     selectedIndex = 0;
     menu = null;
@@ -101,6 +141,44 @@ public class ShiftingTabLayout extends ViewGroup implements BottomTabLayout {
       setChildFrame(child, left, 0, params.width, params.height);
       left += child.getWidth();
     }
+
+    if (!animation.isRunning()) {
+      resetOffsets();
+    }
+  }
+
+  /**
+   * Moves and clips the tabs so that they look laid out with their widths at {@code fraction}
+   * of the animation, whatever their current layout.
+   */
+  private void onAnimationFrame(final float fraction) {
+    final int count = Math.min(getChildCount(), widths.length);
+    float total = 0;
+    for (int i = 0; i < count; i++) {
+      final int target = i == selectedIndex ? maxSize : minSize;
+      widths[i] = startWidths[i] + (target - startWidths[i]) * fraction;
+      total += widths[i];
+    }
+
+    float left = (getWidth() - total) / 2;
+    for (int i = 0; i < count; i++) {
+      final View child = getChildAt(i);
+      final int width = child.getWidth();
+      final float visibleWidth = widths[i];
+      ViewCompat.setTranslationX(child, left + visibleWidth / 2 - (child.getLeft() + width / 2f));
+      clipBounds.set(Math.round((width - visibleWidth) / 2), 0,
+          Math.round((width + visibleWidth) / 2), child.getHeight());
+      ViewCompat.setClipBounds(child, clipBounds);
+      left += visibleWidth;
+    }
+  }
+
+  private void resetOffsets() {
+    for (int i = 0; i < getChildCount(); i++) {
+      final View child = getChildAt(i);
+      ViewCompat.setTranslationX(child, 0);
+      ViewCompat.setClipBounds(child, null);
+    }
   }
 
   @Override protected void onSizeChanged(final int w, final int h, final int oldw, final int oldh) {
@@ -118,6 +196,48 @@ public class ShiftingTabLayout extends ViewGroup implements BottomTabLayout {
     this.listener = listener;
   }
 
+  @Override public void getTabBounds(final int index, @NonNull final Rect outRect) {
+    final View child = getChildAt(index);
+    outRect.set(child.getLeft(), child.getTop(), child.getRight(), child.getBottom());
+    outRect.offset(Math.round(ViewCompat.getTranslationX(child)), 0);
+  }
+
+  @Override public void invalidateBadge(final int itemId) {
+    final View child = findViewById(itemId);
+    if (child instanceof ActionTabView) {
+      ((ActionTabView) child).invalidateBadge();
+    }
+  }
+
+  @Override public void setTypeface(@NonNull final Typeface typeface) {
+    for (int i = 0; i < getChildCount(); i++) {
+      ((ActionTabView) getChildAt(i)).setTypeface(typeface);
+    }
+  }
+
+  @Override public SharedRipple getSharedRipple() {
+    return sharedRipple;
+  }
+
+  @Override protected void dispatchDraw(final Canvas canvas) {
+    SharedRipple.draw(sharedRipple, canvas);
+    super.dispatchDraw(canvas);
+  }
+
+  @Override protected boolean verifyDrawable(@NonNull final Drawable who) {
+    return super.verifyDrawable(who) || SharedRipple.verifyDrawable(sharedRipple, who);
+  }
+
+  @Override public void childDrawableStateChanged(final View child) {
+    super.childDrawableStateChanged(child);
+    SharedRipple.onChildStateChanged(sharedRipple, child);
+  }
+
+  @Override public void jumpDrawablesToCurrentState() {
+    super.jumpDrawablesToCurrentState();
+    SharedRipple.jumpToCurrentState(sharedRipple);
+  }
+
   private void setChildFrame(View child, int left, int top, int width, int height) {
     // Log.v(TAG, "setChildFrame: " + left + ", " + top + ", " + width + ", " + height);
     child.layout(left, top, left + width, top + height);
@@ -144,11 +264,31 @@ public class ShiftingTabLayout extends ViewGroup implements BottomTabLayout {
       return;
     }
 
+    final int count = getChildCount();
+    if (animate) {
+      // an animation in progress continues from the current widths
+      if (widths.length != count) {
+        widths = new float[count];
+        startWidths = new float[count];
+      }
+      final boolean running = animation.isRunning();
+      for (int i = 0; i < count; i++) {
+        startWidths[i] = running ? widths[i] : getChildAt(i).getWidth();
+      }
+    }
+
     final ActionTabView current = (ActionTabView) getChildAt(oldSelectedIndex);
     final ActionTabView child = (ActionTabView) getChildAt(itemIndex);
 
     current.setExpanded(false, minSize, animate);
     child.setExpanded(true, maxSize, animate);
+
+    if (animate) {
+      animation.start(((BottomNavigationView) getParent()).getAnimationClock(), this);
+    } else {
+      animation.cancel();
+      requestLayout();
+    }
   }
 
   @Override @Keep @SuppressWarnings("unused") public int getSelectedItem() {
@@ -165,12 +305,55 @@ public class ShiftingTabLayout extends ViewGroup implements BottomTabLayout {
     }
   }
 
-  private void populateInternal(@NonNull final MenuParser.Menu menu) {
-    Log.d(TAG, "populateInternal");
+  @Override public void update(@NonNull final MenuParser.Menu menu, final int selectedIndex) {
+    Log.i(TAG, "update: " + menu);
+    if (!hasFrame || getChildCount() == 0) {
+      this.selectedIndex = selectedIndex;
+      populate(menu);
+      return;
+    }
 
+    animation.cancel();
     final BottomNavigationView parent = (BottomNavigationView) getParent();
+    final RibbonStyle style = menu.getStyle(getResources());
+    sharedRipple = SharedRipple.update(sharedRipple, this, parent.isSharedRippleEnabled(),
+        style.rippleColor);
+    final ActionTab[] actions = menu.getActions();
+    final List<ActionTabView> removed = new ArrayList<>();
+    final ActionTabView[] views = MenuDiff.match(this, actions, removed);
+    computeSizes(parent.getWidth(), actions.length);
+
+    detachAllViewsFromParent();
+    for (int i = 0; i < actions.length; i++) {
+      final boolean expanded = i == selectedIndex;
+      final int size = expanded ? maxSize : minSize;
+      ActionTabView view = views[i];
+      if (view == null) {
+        view = newTabView(parent, style, actions[i], expanded, size);
+        addViewInLayout(view, i, view.getLayoutParams(), true);
+      } else {
+        view.setExpanded(expanded, size, false);
+        if (view.getAction() != actions[i]) {
+          view.setAction(actions[i]);
+        }
+        view.getLayoutParams().width = size;
+        attachViewToParent(view, i, view.getLayoutParams());
+      }
+    }
+
+    for (ActionTabView view : removed) {
+      removeDetachedView(view, false);
+      parent.getTabViewPool().recycle(view);
+    }
+
+    this.selectedIndex = selectedIndex;
+    this.totalChildrenSize = 0;
+    requestLayout();
+    invalidate();
+  }
+
+  private void computeSizes(final int screenWidth, final int count) {
     final float density = getResources().getDisplayMetrics().density;
-    final int screenWidth = parent.getWidth();
 
     Log.v(TAG, "density: " + density);
     Log.v(TAG, "screenWidth(dp): " + (screenWidth / density));
@@ -178,7 +361,7 @@ public class ShiftingTabLayout extends ViewGroup implements BottomTabLayout {
     int itemWidthMin;
     int itemWidthMax;
 
-    final int totalWidth = maxInactiveItemWidth * (menu.getActionCount() - 1) + maxActiveItemWidth;
+    final int totalWidth = maxInactiveItemWidth * (count - 1) + maxActiveItemWidth;
     Log.v(TAG, "totalWidth(dp): " + totalWidth / density);
 
     if (totalWidth > screenWidth) {
@@ -193,15 +376,14 @@ public class ShiftingTabLayout extends ViewGroup implements BottomTabLayout {
       Log.d(TAG, "computing sizes...");
       Log.v(TAG, "itemWidthMin(dp): " + itemWidthMin / density);
       Log.v(TAG, "itemWidthMax(dp): " + itemWidthMax / density);
-      Log.v(TAG, "total items size(dp): "
-          + (itemWidthMin * (menu.getActionCount() - 1) + itemWidthMax) / density);
+      Log.v(TAG,
+          "total items size(dp): " + (itemWidthMin * (count - 1) + itemWidthMax) / density);
 
-      if (itemWidthMin * (menu.getActionCount() - 1) + itemWidthMax > screenWidth) {
-        itemWidthMax =
-            screenWidth - (itemWidthMin * (menu.getActionCount() - 1)); // minActiveItemWidth?
+      if (itemWidthMin * (count - 1) + itemWidthMax > screenWidth) {
+        itemWidthMax = screenWidth - (itemWidthMin * (count - 1)); // minActiveItemWidth?
         if (itemWidthMax == itemWidthMin) {
           itemWidthMin = minInactiveItemWidth;
-          itemWidthMax = screenWidth - (itemWidthMin * (menu.getActionCount() - 1));
+          itemWidthMax = screenWidth - (itemWidthMin * (count - 1));
         }
       }
     } else {
@@ -219,37 +401,54 @@ public class ShiftingTabLayout extends ViewGroup implements BottomTabLayout {
     Log.v(TAG, "itemWidth(dp): " + (itemWidthMin / density) + ", " + (itemWidthMax / density));
 
     setTotalSize(itemWidthMin, itemWidthMax);
+  }
+
+  private void populateInternal(@NonNull final MenuParser.Menu menu) {
+    Log.d(TAG, "populateInternal");
+
+    final BottomNavigationView parent = (BottomNavigationView) getParent();
+    final RibbonStyle style = menu.getStyle(getResources());
+    sharedRipple = SharedRipple.update(sharedRipple, this, parent.isSharedRippleEnabled(),
+        style.rippleColor);
+    computeSizes(parent.getWidth(), menu.getActionCount());
 
     for (int i = 0; i < menu.getActionCount(); i++) {
       final ActionTab item = menu.getActionItemAt(i);
       Log.d(TAG, "item: " + item);
+      addView(newTabView(parent, style, item, i == selectedIndex,
+          i == selectedIndex ? maxSize : minSize));
+    }
+  }
 
-      LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(itemWidthMin, getHeight());
-
-      if (i == selectedIndex) {
-        params.width = itemWidthMax;
-      }
+  private ActionTabView newTabView(final BottomNavigationView parent, final RibbonStyle style,
+      final ActionTab item, final boolean expanded, final int width) {
+    LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(width, getHeight());
 
-      ActionTabView view = new ShiftingActionTabView(parent, i == selectedIndex, menu);
-      view.setAction(item);
-      view.setLayoutParams(params);
-      view.setClickable(true);
-      view.setTypeface(parent.typeface);
-      final int finalI = i;
-      view.setOnClickListener(new OnClickListener() {
-        @Override public void onClick(final View v) {
-          if (null != listener) {
-            listener.onItemClick(ShiftingTabLayout.this, v, finalI, true);
-          }
-        }
-      });
-      view.setOnLongClickListener(new OnLongClickListener() {
-        @Override public boolean onLongClick(final View v) {
-          Toast.makeText(getContext(), item.getTitle(), Toast.LENGTH_SHORT).show();
-          return true;
-        }
-      });
-      addView(view);
+    ShiftingActionTabView view =
+        parent.getTabViewPool().obtain(parent, ShiftingActionTabView.class, style);
+    if (view == null) {
+      view = new ShiftingActionTabView(parent, expanded, style);
+    } else {
+      view.setExpanded(expanded, width, false);
     }
+    view.setAction(item);
+    view.setLayoutParams(params);
+    view.setClickable(true);
+    view.setTypeface(parent.typeface);
+    view.setOnClickListener(new OnClickListener() {
+      @Override public void onClick(final View v) {
+        if (null != listener) {
+          listener.onItemClick(ShiftingTabLayout.this, v, indexOfChild(v), true);
+        }
+      }
+    });
+    view.setOnLongClickListener(new OnLongClickListener() {
+      @Override public boolean onLongClick(final View v) {
+        Toast.makeText(getContext(), ((ActionTabView) v).getAction().getTitle(),
+            Toast.LENGTH_SHORT).show();
+        return true;
+      }
+    });
+    return view;
   }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alessandro Crugnola
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package im.ene.ribbon;
+
+import android.content.Context;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static android.util.Log.INFO;
+import static im.ene.ribbon.MiscUtils.log;
+
+/**
+ * Keeps the tab views removed from a tab layout, so they can be bound to other items instead of
+ * being created again when the menu or the layout mode changes.
+ * <p>
+ * A pool can be shared by several {@link BottomNavigationView} with
+ * {@link BottomNavigationView#setTabViewPool(TabViewPool)}. A view is only reused by a navigation
+ * view of the same {@link Context}, for a menu with the same colors and sizes.
+ */
+public final class TabViewPool {
+  private static final String TAG = TabViewPool.class.getSimpleName();
+
+  private static final int DEFAULT_MAX_SCRAP = 15;
+
+  private final List<ActionTabView> scrap = new ArrayList<>();
+  private int maxScrap = DEFAULT_MAX_SCRAP;
+
+  /**
+   * Sets the number of views kept by the pool. 15 by default, enough for 5 items in every layout
+   * mode.
+   */
+  public void setMaxRecycledViews(final int max) {
+    this.maxScrap = max;
+    while (scrap.size() > max) {
+      scrap.remove(0);
+    }
+  }
+
+  public int getRecycledViewCount() {
+    return scrap.size();
+  }
+
+  /**
+   * Removes every view from the pool.
+   */
+  public void clear() {
+    scrap.clear();
+  }
+
+  /**
+   * Removes the views created for the passed context, so the pool doesn't keep a destroyed
+   * Activity alive.
+   */
+  void clear(final Context context) {
+    final Iterator<ActionTabView> iterator = scrap.iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().getContext() == context) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Returns a recycled view of the passed type usable by {@code parent}, or null if there is
+   * none. The view still displays its previous item: the caller must set its expanded state and
+   * bind it with {@link ActionTabView#setAction(ActionTab)}.
+   */
+  <T extends ActionTabView> T obtain(final BottomNavigationView parent, final Class<T> type,
+      final RibbonStyle style) {
+    for (int i = scrap.size() - 1; i >= 0; i--) {
+      final ActionTabView view = scrap.get(i);
+      if (view.getClass() == type
+          && view.getContext() == parent.getContext()
+          && view.isIconCrossfade() == parent.isIconCrossfadeEnabled()
+          && view.isSharedRipple() == parent.isSharedRippleEnabled()
+          && view.getStyle().equals(style)) {
+        scrap.remove(i);
+        view.setBadgeProvider(parent.getBadgeProvider());
+        return type.cast(view);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Adds a view, already removed from its parent, to the pool.
+   */
+  void recycle(final ActionTabView view) {
+    if (view.getParent() != null) {
+      throw new IllegalArgumentException("Recycled view " + view + " still has a parent");
+    }
+
+    view.setOnClickListener(null);
+    view.setOnLongClickListener(null);
+    view.clearAnimation();
+
+    if (scrap.size() >= maxScrap) {
+      log(TAG, INFO, "pool full, dropping %s", view);
+      return;
+    }
+    scrap.add(view);
+  }
+}
@@ -38,69 +38,27 @@
 
 package im.ene.ribbon;
 
-import android.animation.ArgbEvaluator;
-import android.animation.ObjectAnimator;
-import android.animation.ValueAnimator;
 import android.annotation.SuppressLint;
-import android.content.res.Resources;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.PorterDuff;
-import android.support.v4.view.ViewCompat;
-import android.view.animation.DecelerateInterpolator;
-import android.view.animation.Interpolator;
 
 @SuppressLint("ViewConstructor")  //
 public class TabletActionTabView extends ActionTabView {
-  private static final String TAG = TabletActionTabView.class.getSimpleName();
   private final int iconSize;
 
-  private final Interpolator interpolator = new DecelerateInterpolator();
-  private long animationDuration;
-  private final int colorActive;
-  private final int colorInactive;
-  private final ArgbEvaluator evaluator;
-
   public TabletActionTabView(final BottomNavigationView parent, boolean expanded,
-      final MenuParser.Menu menu) {
-    super(parent, expanded, menu);
-    this.evaluator = new ArgbEvaluator();
-    final Resources res = getResources();
-    this.iconSize = res.getDimensionPixelSize(R.dimen.ribbon_tablet_item_icon_size);
-    this.animationDuration = menu.getItemAnimationDuration();
-    this.colorActive = menu.getColorActive();
-    this.colorInactive = menu.getColorInactive();
+      final RibbonStyle style) {
+    super(parent, expanded, style);
+    this.iconSize = style.tabletItemIconSize;
   }
 
-  @Override
-  protected void onStatusChanged(final boolean expanded, final int size, final boolean animate) {
-    if (!animate) {
-      updateLayoutOnAnimation(1, expanded);
+  @Override protected void onPositionChanged(final float position) {
+    if (icon == null) {
+      // not laid out yet, the icon will be created with the current color
       return;
     }
 
-    final ValueAnimator animator = ObjectAnimator.ofFloat(0, 1);
-    animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-      @Override public void onAnimationUpdate(final ValueAnimator animation) {
-        updateLayoutOnAnimation(animation.getAnimatedFraction(), expanded);
-      }
-    });
-    animator.setDuration(animationDuration);
-    animator.setInterpolator(interpolator);
-    animator.start();
-  }
-
-  private void updateLayoutOnAnimation(final float fraction, final boolean expanded) {
-    if (expanded) {
-      final int color = (int) evaluator.evaluate(fraction, colorInactive, colorActive);
-      icon.setColorFilter(color, PorterDuff.Mode.SRC_ATOP);
-      icon.setAlpha(Color.alpha(color));
-    } else {
-      int color = (int) evaluator.evaluate(fraction, colorActive, colorInactive);
-      icon.setColorFilter(color, PorterDuff.Mode.SRC_ATOP);
-      icon.setAlpha(Color.alpha(color));
-    }
-    ViewCompat.postInvalidateOnAnimation(this);
+    setIconState(position, Color.alpha(colorRamp.getColor(position)));
   }
 
   @Override
@@ -108,26 +66,24 @@ public class TabletActionTabView extends ActionTabView {
       final int bottom) {
     super.onLayout(changed, left, top, right, bottom);
 
-    if (null == this.icon) {
-      this.icon = getAction().getIcon(getContext()).mutate();
-      this.icon.setColorFilter(isExpanded() ? colorActive : colorInactive,
-          PorterDuff.Mode.SRC_ATOP);
-      this.icon.setAlpha(Color.alpha(isExpanded() ? colorActive : colorInactive));
-      this.icon.setBounds(0, 0, iconSize, iconSize);
+    final boolean iconChanged = null == this.icon;
+    if (iconChanged) {
+      loadIcon(iconSize);
+      setIconState(getPosition(), Color.alpha(colorRamp.getColor(getPosition())));
     }
 
-    if (changed) {
+    if (changed || iconChanged) {
       final int w = right - left;
       final int h = bottom - top;
       final int centerX = (w - iconSize) / 2;
       final int centerY = (h - iconSize) / 2;
-      icon.setBounds(centerX, centerY, centerX + iconSize, centerY + iconSize);
+      setIconBounds(centerX, centerY, centerX + iconSize, centerY + iconSize);
     }
   }
 
   @Override protected void onDraw(final Canvas canvas) {
     super.onDraw(canvas);
-    icon.draw(canvas);
+    drawIcon(canvas);
     drawBadge(canvas);
   }
 }
@@ -39,33 +39,46 @@
 package im.ene.ribbon;
 
 import android.content.Context;
-import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
 import android.support.annotation.NonNull;
 import android.util.Log;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.LinearLayout;
 import android.widget.Toast;
+import java.util.ArrayList;
+import java.util.List;
 
-public class TabletLayout extends ViewGroup implements BottomTabLayout {
+public class TabletLayout extends ViewGroup implements BottomTabLayout, SharedRipple.Host {
   private static final String TAG = TabletLayout.class.getSimpleName();
   private final int itemHeight;
   private final int paddingTop;
   private boolean hasFrame;
   private int selectedIndex;
   OnItemClickListener listener;
+  private SharedRipple sharedRipple;
   private MenuParser.Menu menu;
 
-  public TabletLayout(final Context context) {
+  public TabletLayout(final Context context, final RibbonStyle style) {
     super(context);
-    final Resources res = getResources();
     selectedIndex = 0;
-    itemHeight = res.getDimensionPixelSize(R.dimen.ribbon_tablet_item_height);
-    paddingTop = res.getDimensionPixelSize(R.dimen.ribbon_tablet_layout_padding_top);
+    itemHeight = style.tabletItemHeight;
+    paddingTop = style.tabletLayoutPaddingTop;
   }
 
   @Override public void removeAll() {
+    final BottomNavigationView parent = (BottomNavigationView) getParent();
+    final ActionTabView[] views = new ActionTabView[getChildCount()];
+    for (int i = 0; i < views.length; i++) {
+      views[i] = (ActionTabView) getChildAt(i);
+    }
     removeAllViews();
+    for (ActionTabView view : views) {
+      parent.getTabViewPool().recycle(view);
+    }
     selectedIndex = 0;
     menu = null;
   }
@@ -95,6 +108,47 @@ public class TabletLayout extends ViewGroup implements BottomTabLayout {
     }
   }
 
+  @Override public void getTabBounds(final int index, @NonNull final Rect outRect) {
+    final View child = getChildAt(index);
+    outRect.set(child.getLeft(), child.getTop(), child.getRight(), child.getBottom());
+  }
+
+  @Override public void invalidateBadge(final int itemId) {
+    final View child = findViewById(itemId);
+    if (child instanceof ActionTabView) {
+      ((ActionTabView) child).invalidateBadge();
+    }
+  }
+
+  @Override public void setTypeface(@NonNull final Typeface typeface) {
+    for (int i = 0; i < getChildCount(); i++) {
+      ((ActionTabView) getChildAt(i)).setTypeface(typeface);
+    }
+  }
+
+  @Override public SharedRipple getSharedRipple() {
+    return sharedRipple;
+  }
+
+  @Override protected void dispatchDraw(final Canvas canvas) {
+    SharedRipple.draw(sharedRipple, canvas);
+    super.dispatchDraw(canvas);
+  }
+
+  @Override protected boolean verifyDrawable(@NonNull final Drawable who) {
+    return super.verifyDrawable(who) || SharedRipple.verifyDrawable(sharedRipple, who);
+  }
+
+  @Override public void childDrawableStateChanged(final View child) {
+    super.childDrawableStateChanged(child);
+    SharedRipple.onChildStateChanged(sharedRipple, child);
+  }
+
+  @Override public void jumpDrawablesToCurrentState() {
+    super.jumpDrawablesToCurrentState();
+    SharedRipple.jumpToCurrentState(sharedRipple);
+  }
+
   private void setChildFrame(View child, int left, int top, int width, int height) {
     Log.v(TAG, "setChildFrame: " + left + ", " + top + ", " + width + ", " + height);
     child.layout(left, top, left + width, top + height);
@@ -139,37 +193,92 @@ public class TabletLayout extends ViewGroup implements BottomTabLayout {
     this.listener = listener;
   }
 
+  @Override public void update(@NonNull final MenuParser.Menu menu, final int selectedIndex) {
+    Log.i(TAG, "update: " + menu);
+    if (!hasFrame || getChildCount() == 0) {
+      this.selectedIndex = selectedIndex;
+      populate(menu);
+      return;
+    }
+
+    final BottomNavigationView parent = (BottomNavigationView) getParent();
+    final RibbonStyle style = menu.getStyle(getResources());
+    sharedRipple = SharedRipple.update(sharedRipple, this, parent.isSharedRippleEnabled(),
+        style.rippleColor);
+    final ActionTab[] actions = menu.getActions();
+    final List<ActionTabView> removed = new ArrayList<>();
+    final ActionTabView[] views = MenuDiff.match(this, actions, removed);
+
+    detachAllViewsFromParent();
+    for (int i = 0; i < actions.length; i++) {
+      final boolean expanded = i == selectedIndex;
+      ActionTabView view = views[i];
+      if (view == null) {
+        view = newTabView(parent, style, actions[i], expanded);
+        addViewInLayout(view, i, view.getLayoutParams(), true);
+      } else {
+        view.setExpanded(expanded, 0, false);
+        if (view.getAction() != actions[i]) {
+          view.setAction(actions[i]);
+        }
+        attachViewToParent(view, i, view.getLayoutParams());
+      }
+    }
+
+    for (ActionTabView view : removed) {
+      removeDetachedView(view, false);
+      parent.getTabViewPool().recycle(view);
+    }
+
+    this.selectedIndex = selectedIndex;
+    requestLayout();
+    invalidate();
+  }
+
   private void populateInternal(@NonNull final MenuParser.Menu menu) {
     Log.d(TAG, "populateInternal");
 
     final BottomNavigationView parent = (BottomNavigationView) getParent();
+    final RibbonStyle style = menu.getStyle(getResources());
+    sharedRipple = SharedRipple.update(sharedRipple, this, parent.isSharedRippleEnabled(),
+        style.rippleColor);
 
     for (int i = 0; i < menu.getActionCount(); i++) {
       final ActionTab item = menu.getActionItemAt(i);
       Log.d(TAG, "item: " + item);
+      addView(newTabView(parent, style, item, i == selectedIndex));
+    }
+  }
 
-      LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(getWidth(), itemHeight);
-
-      TabletActionTabView view = new TabletActionTabView(parent, i == selectedIndex, menu);
-      view.setAction(item);
-      view.setLayoutParams(params);
-      view.setClickable(true);
-      view.setTypeface(parent.typeface);
-      final int finalI = i;
-      view.setOnClickListener(new OnClickListener() {
-        @Override public void onClick(final View v) {
-          if (null != listener) {
-            listener.onItemClick(TabletLayout.this, v, finalI, true);
-          }
-        }
-      });
-      view.setOnLongClickListener(new OnLongClickListener() {
-        @Override public boolean onLongClick(final View v) {
-          Toast.makeText(getContext(), item.getTitle(), Toast.LENGTH_SHORT).show();
-          return true;
-        }
-      });
-      addView(view);
+  private ActionTabView newTabView(final BottomNavigationView parent, final RibbonStyle style,
+      final ActionTab item, final boolean expanded) {
+    LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(getWidth(), itemHeight);
+
+    TabletActionTabView view =
+        parent.getTabViewPool().obtain(parent, TabletActionTabView.class, style);
+    if (view == null) {
+      view = new TabletActionTabView(parent, expanded, style);
+    } else {
+      view.setExpanded(expanded, 0, false);
     }
+    view.setAction(item);
+    view.setLayoutParams(params);
+    view.setClickable(true);
+    view.setTypeface(parent.typeface);
+    view.setOnClickListener(new OnClickListener() {
+      @Override public void onClick(final View v) {
+        if (null != listener) {
+          listener.onItemClick(TabletLayout.this, v, indexOfChild(v), true);
+        }
+      }
+    });
+    view.setOnLongClickListener(new OnLongClickListener() {
+      @Override public boolean onLongClick(final View v) {
+        Toast.makeText(getContext(), ((ActionTabView) v).getAction().getTitle(),
+            Toast.LENGTH_SHORT).show();
+        return true;
+      }
+    });
+    return view;
   }
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alessandro Crugnola
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package im.ene.ribbon;
+
+import android.content.Context;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+import java.util.Locale;
+
+import static android.util.Log.INFO;
+import static im.ene.ribbon.MiscUtils.log;
+
+/**
+ * Process wide cache of the tab titles widths, keyed by title, typeface, text size, paint flags
+ * and locale. The tab views of every {@link BottomNavigationView} share it, so populating a bar
+ * again, after a rotation or a menu update, doesn't measure the titles it already displayed.
+ */
+final class TextCache {
+  private static final String TAG = TextCache.class.getSimpleName();
+
+  /**
+   * Maximum number of widths kept in memory: the titles of a few menus, in both text sizes
+   */
+  private static final int MAX_SIZE = 64;
+
+  private static final LruCache<Key, Float> CACHE = new LruCache<>(MAX_SIZE);
+
+  private TextCache() {
+    throw new AssertionError("Illegal initialization!");
+  }
+
+  /**
+   * Returns the width of {@code text} drawn with {@code paint}, measuring it only if no paint
+   * with the same typeface, size and flags measured it before. Safe to call from any thread.
+   */
+  static float measure(final Paint paint, @Nullable final String text) {
+    final Key key = new Key(text, paint.getTypeface(), paint.getTextSize(), paint.getFlags(),
+        paint.getHinting(), Locale.getDefault());
+
+    Float width = CACHE.get(key);
+    if (width == null) {
+      log(TAG, INFO, "measure: %s not cached", text);
+      // items without a title take no space
+      width = text != null ? paint.measureText(text) : 0f;
+      CACHE.put(key, width);
+    }
+    return width;
+  }
+
+  /**
+   * Measures the titles of the menu with the paint its tab views will use, so that they don't
+   * measure anything when populated.
+   */
+  static void preload(final Context context, final MenuParser.Menu menu,
+      @Nullable final Typeface typeface) {
+    if (menu.isTablet()) {
+      // tablet tabs don't draw their title
+      return;
+    }
+
+    final RibbonStyle style = menu.getStyle(context.getResources());
+    final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    paint.setHinting(Paint.HINTING_ON);
+    paint.setLinearText(true);
+    paint.setSubpixelText(true);
+    paint.setTypeface(typeface != null ? typeface : Typeface.DEFAULT);
+    paint.setTextSize(
+        menu.isShifting() ? style.shiftingTextSize : style.fixedInactiveItemTextSize);
+
+    for (int i = 0; i < menu.getActionCount(); i++) {
+      measure(paint, menu.getActionItemAt(i).getTitle());
+    }
+  }
+
+  /**
+   * Drops all the cached widths
+   */
+  static void clear() {
+    CACHE.evictAll();
+  }
+
+  private static final class Key {
+    final String text;
+    final Typeface typeface;
+    final float textSize;
+    final int flags;
+    final int hinting;
+    final Locale locale;
+
+    Key(final String text, final Typeface typeface, final float textSize, final int flags,
+        final int hinting, final Locale locale) {
+      this.text = text;
+      this.typeface = typeface;
+      this.textSize = textSize;
+      this.flags = flags;
+      this.hinting = hinting;
+      this.locale = locale;
+    }
+
+    @Override public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key key = (Key) o;
+      return Float.compare(textSize, key.textSize) == 0
+          && flags == key.flags
+          && hinting == key.hinting
+          && (text != null ? text.equals(key.text) : key.text == null)
+          && (typeface != null ? typeface.equals(key.typeface) : key.typeface == null)
+          && locale.equals(key.locale);
+    }
+
+    @Override public int hashCode() {
+      int result = text != null ? text.hashCode() : 0;
+      result = 31 * result + (typeface != null ? typeface.hashCode() : 0);
+      result = 31 * result + Float.floatToIntBits(textSize);
+      result = 31 * result + flags;
+      result = 31 * result + hinting;
+      result = 31 * result + locale.hashCode();
+      return result;
+    }
+  }
+}
@@ -40,12 +40,16 @@ package im.ene.ribbon;
 
 import android.content.Context;
 import android.os.Parcelable;
+import android.os.SystemClock;
 import android.support.annotation.IntDef;
 import android.support.design.widget.CoordinatorLayout;
+import android.support.v4.view.ScrollingView;
 import android.support.v4.view.ViewCompat;
 import android.support.v4.view.WindowInsetsCompat;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.View;
+import android.widget.OverScroller;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 
@@ -56,6 +60,45 @@ abstract class VerticalScrollingBehavior<V extends View> extends CoordinatorLayo
   @ScrollDirection private int mOverScrollDirection = ScrollDirection.SCROLL_NONE;
   @ScrollDirection private int mScrollDirection = ScrollDirection.SCROLL_NONE;
 
+  /**
+   * minimum velocity, in dp per second, of a fling which should change the bar's state
+   */
+  private static final int MIN_FLING_VELOCITY_DP = 350;
+
+  /**
+   * minimum travel, in dp, of a fling which should change the bar's state: its predicted
+   * distance, bounded by the content left to scroll
+   */
+  private static final int MIN_FLING_DISTANCE_DP = 112;
+
+  private final ScrollVelocityTracker mVelocityTracker = new ScrollVelocityTracker();
+  private OverScroller mScroller;
+  private float mMinFlingVelocity;
+  private float mMinFlingDistance;
+
+  /**
+   * true once the current nested scroll has dispatched its fling
+   */
+  private boolean mFlingHandled;
+
+  /**
+   * nested scroll deltas received since the last frame, see {@link #isNestedScrollCoalesced()}
+   */
+  private int mPendingDx;
+  private int mPendingDy;
+  private int mPendingDyConsumed;
+  private int mPendingDyUnconsumed;
+  private CoordinatorLayout mPendingCoordinatorLayout;
+  private V mPendingChild;
+  private View mPendingTarget;
+  private final int[] mPendingConsumed = new int[2];
+
+  private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+    @Override public void doFrame(final long frameTimeNanos) {
+      dispatchPendingScroll();
+    }
+  };
+
   public VerticalScrollingBehavior(Context context, AttributeSet attrs) {
     super(context, attrs);
   }
@@ -110,17 +153,90 @@ abstract class VerticalScrollingBehavior<V extends View> extends CoordinatorLayo
       View directTargetChild, View target, int nestedScrollAxes) {
     super.onNestedScrollAccepted(coordinatorLayout, child, directTargetChild, target,
         nestedScrollAxes);
+    mVelocityTracker.clear();
+    mFlingHandled = false;
   }
 
   @Override
   public void onStopNestedScroll(CoordinatorLayout coordinatorLayout, V child, View target) {
+    flushPendingScroll();
     super.onStopNestedScroll(coordinatorLayout, child, target);
   }
 
+  /**
+   * When true (the default) the nested scroll deltas are accumulated, and the direction logic,
+   * {@link #onDirectionNestedPreScroll} and {@link #onNestedVerticalOverScroll} run at most once
+   * per frame, with the summed deltas. The {@code consumed} array passed to
+   * onDirectionNestedPreScroll is then a scratch one, it's too late to consume anything.
+   * Subclasses which need every single event, or need to consume scroll, should return false.
+   */
+  protected boolean isNestedScrollCoalesced() {
+    return true;
+  }
+
+  private void schedulePendingScroll(CoordinatorLayout coordinatorLayout, V child, View target) {
+    if (null == mPendingCoordinatorLayout) {
+      Choreographer.getInstance().postFrameCallback(mFrameCallback);
+    }
+    mPendingCoordinatorLayout = coordinatorLayout;
+    mPendingChild = child;
+    mPendingTarget = target;
+  }
+
+  /**
+   * Dispatches the pending deltas right away, so that the scroll state is up to date before a
+   * fling or the end of the nested scroll.
+   */
+  private void flushPendingScroll() {
+    if (null != mPendingCoordinatorLayout) {
+      Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+      dispatchPendingScroll();
+    }
+  }
+
+  private void dispatchPendingScroll() {
+    final CoordinatorLayout coordinatorLayout = mPendingCoordinatorLayout;
+    final V child = mPendingChild;
+    final View target = mPendingTarget;
+    mPendingCoordinatorLayout = null;
+    mPendingChild = null;
+    mPendingTarget = null;
+    if (null == coordinatorLayout) {
+      return;
+    }
+
+    if (mPendingDx != 0 || mPendingDy != 0) {
+      final int dx = mPendingDx;
+      final int dy = mPendingDy;
+      mPendingDx = mPendingDy = 0;
+      mPendingConsumed[0] = mPendingConsumed[1] = 0;
+      dispatchPreScroll(coordinatorLayout, child, target, dx, dy, mPendingConsumed);
+    }
+
+    if (mPendingDyConsumed != 0 || mPendingDyUnconsumed != 0) {
+      final int dyConsumed = mPendingDyConsumed;
+      final int dyUnconsumed = mPendingDyUnconsumed;
+      mPendingDyConsumed = mPendingDyUnconsumed = 0;
+      dispatchScroll(coordinatorLayout, child, dyConsumed, dyUnconsumed);
+    }
+  }
+
   @Override public void onNestedScroll(CoordinatorLayout coordinatorLayout, V child, View target,
       int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
     super.onNestedScroll(coordinatorLayout, child, target, dxConsumed, dyConsumed, dxUnconsumed,
         dyUnconsumed);
+    if (!isNestedScrollCoalesced()) {
+      dispatchScroll(coordinatorLayout, child, dyConsumed, dyUnconsumed);
+      return;
+    }
+
+    mPendingDyConsumed += dyConsumed;
+    mPendingDyUnconsumed += dyUnconsumed;
+    schedulePendingScroll(coordinatorLayout, child, target);
+  }
+
+  private void dispatchScroll(CoordinatorLayout coordinatorLayout, V child, int dyConsumed,
+      int dyUnconsumed) {
     if (dyUnconsumed > 0 && mTotalDyUnconsumed < 0) {
       mTotalDyUnconsumed = 0;
       mOverScrollDirection = ScrollDirection.SCROLL_DIRECTION_UP;
@@ -137,6 +253,20 @@ abstract class VerticalScrollingBehavior<V extends View> extends CoordinatorLayo
   public void onNestedPreScroll(CoordinatorLayout coordinatorLayout, V child, View target, int dx,
       int dy, int[] consumed) {
     super.onNestedPreScroll(coordinatorLayout, child, target, dx, dy, consumed);
+    // sampled per event, the coalesced deltas would lose their timing
+    mVelocityTracker.add(dy);
+    if (!isNestedScrollCoalesced()) {
+      dispatchPreScroll(coordinatorLayout, child, target, dx, dy, consumed);
+      return;
+    }
+
+    mPendingDx += dx;
+    mPendingDy += dy;
+    schedulePendingScroll(coordinatorLayout, child, target);
+  }
+
+  private void dispatchPreScroll(CoordinatorLayout coordinatorLayout, V child, View target, int dx,
+      int dy, int[] consumed) {
     if (dy > 0 && mTotalDy < 0) {
       mTotalDy = 0;
       mScrollDirection = ScrollDirection.SCROLL_DIRECTION_UP;
@@ -152,6 +282,12 @@ abstract class VerticalScrollingBehavior<V extends View> extends CoordinatorLayo
   @Override public boolean onNestedFling(CoordinatorLayout coordinatorLayout, V child, View target,
       float velocityX, float velocityY, boolean consumed) {
     super.onNestedFling(coordinatorLayout, child, target, velocityX, velocityY, consumed);
+    flushPendingScroll();
+    if (mFlingHandled) {
+      // the decision has already been taken for this gesture
+      return false;
+    }
+    mFlingHandled = true;
     mScrollDirection =
         velocityY > 0 ? ScrollDirection.SCROLL_DIRECTION_UP : ScrollDirection.SCROLL_DIRECTION_DOWN;
     return onNestedDirectionFling(coordinatorLayout, child, target, velocityX, velocityY,
@@ -161,6 +297,67 @@ abstract class VerticalScrollingBehavior<V extends View> extends CoordinatorLayo
   protected abstract boolean onNestedDirectionFling(CoordinatorLayout coordinatorLayout, V child,
       View target, float velocityX, float velocityY, @ScrollDirection int scrollDirection);
 
+  /**
+   * @return the vertical velocity, in pixels per second, estimated from the latest nested
+   * pre-scroll events of the current gesture, before they are coalesced
+   */
+  protected float getNestedScrollVelocity() {
+    return mVelocityTracker.getVelocity();
+  }
+
+  /**
+   * @return the distance, in pixels, a fling started with the given velocity would travel
+   */
+  protected int predictFlingDistance(CoordinatorLayout coordinatorLayout, float velocityY) {
+    ensureFlingValues(coordinatorLayout);
+    mScroller.fling(0, 0, 0, Math.round(velocityY), 0, 0, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    final int distance = mScroller.getFinalY();
+    mScroller.abortAnimation();
+    return distance;
+  }
+
+  /**
+   * @return true if a fling with the given velocity is fast enough to change the bar's state, and
+   * would travel far enough before the target runs out of content, using density independent
+   * thresholds
+   */
+  protected boolean isSignificantFling(CoordinatorLayout coordinatorLayout, View target,
+      float velocityY) {
+    ensureFlingValues(coordinatorLayout);
+    if (Math.abs(velocityY) < mMinFlingVelocity) {
+      return false;
+    }
+    final int distance = Math.min(Math.abs(predictFlingDistance(coordinatorLayout, velocityY)),
+        getRemainingScroll(target, velocityY));
+    return distance >= mMinFlingDistance;
+  }
+
+  /**
+   * @return the distance, in pixels, the target can still scroll in the direction of the velocity
+   */
+  private static int getRemainingScroll(View target, float velocityY) {
+    final int direction = velocityY > 0 ? 1 : -1;
+    if (target instanceof ScrollingView) {
+      final ScrollingView view = (ScrollingView) target;
+      final int offset = view.computeVerticalScrollOffset();
+      return direction > 0
+          ? view.computeVerticalScrollRange() - view.computeVerticalScrollExtent() - offset
+          : offset;
+    }
+    // other targets only tell whether they can scroll at all
+    return ViewCompat.canScrollVertically(target, direction) ? Integer.MAX_VALUE : 0;
+  }
+
+  private void ensureFlingValues(CoordinatorLayout coordinatorLayout) {
+    if (null == mScroller) {
+      final Context context = coordinatorLayout.getContext();
+      final float density = context.getResources().getDisplayMetrics().density;
+      mScroller = new OverScroller(context);
+      mMinFlingVelocity = MIN_FLING_VELOCITY_DP * density;
+      mMinFlingDistance = MIN_FLING_DISTANCE_DP * density;
+    }
+  }
+
   @Override
   public boolean onNestedPreFling(CoordinatorLayout coordinatorLayout, V child, View target,
       float velocityX, float velocityY) {
@@ -177,4 +374,57 @@ abstract class VerticalScrollingBehavior<V extends View> extends CoordinatorLayo
   @Override public Parcelable onSaveInstanceState(CoordinatorLayout parent, V child) {
     return super.onSaveInstanceState(parent, child);
   }
-}
\ No newline at end of file
+
+  /**
+   * Estimates the scroll velocity from the latest nested scroll deltas, the same way {@link
+   * android.view.VelocityTracker} does from touch events.
+   */
+  private static final class ScrollVelocityTracker {
+    private static final int SIZE = 8;
+
+    /**
+     * samples older than this are ignored
+     */
+    private static final long HORIZON_MS = 100;
+
+    private final int[] deltas = new int[SIZE];
+    private final long[] times = new long[SIZE];
+    private int index = -1;
+    private int count;
+
+    void clear() {
+      index = -1;
+      count = 0;
+    }
+
+    void add(int delta) {
+      index = (index + 1) % SIZE;
+      deltas[index] = delta;
+      times[index] = SystemClock.uptimeMillis();
+      count = Math.min(count + 1, SIZE);
+    }
+
+    float getVelocity() {
+      if (count < 2) {
+        return 0;
+      }
+
+      final long newest = times[index];
+      long oldest = newest;
+      int distance = 0;
+      for (int i = 0; i < count - 1; i++) {
+        final int current = (index - i + SIZE) % SIZE;
+        final int previous = (current - 1 + SIZE) % SIZE;
+        if (newest - times[previous] > HORIZON_MS) {
+          break;
+        }
+        // the oldest sample only marks the start of the window
+        distance += deltas[current];
+        oldest = times[previous];
+      }
+
+      final long duration = newest - oldest;
+      return duration > 0 ? distance * 1000f / duration : 0;
+    }
+  }
+}
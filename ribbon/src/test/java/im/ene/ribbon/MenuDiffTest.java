@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alessandro Crugnola
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package im.ene.ribbon;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class MenuDiffTest {
+
+  @Test public void matchesUniqueIdsByValue() {
+    final int[] indices = MenuDiff.matchIndices(new int[] { 10, 20, 30 }, new int[] { 30, 40, 10 });
+    assertArrayEquals(new int[] { 2, -1, 0 }, indices);
+  }
+
+  @Test public void matchesDuplicateIdsByPosition() {
+    // items without android:id, parsed or generated, all share the id 0
+    final int[] indices = MenuDiff.matchIndices(new int[] { 0, 0, 0 }, new int[] { 0, 0, 0, 0 });
+    assertArrayEquals(new int[] { 0, 1, 2, -1 }, indices);
+  }
+
+  @Test public void matchesByPositionWhenOnlyTheNewMenuHasDuplicates() {
+    final int[] indices = MenuDiff.matchIndices(new int[] { 10, 20, 30 }, new int[] { 10, 10 });
+    assertArrayEquals(new int[] { 0, 1 }, indices);
+  }
+
+  @Test public void matchesMissingIdsByPosition() {
+    final int[] indices = MenuDiff.matchIndices(new int[] { 10, 0 }, new int[] { 20, 10, 30 });
+    assertArrayEquals(new int[] { 0, 1, -1 }, indices);
+  }
+}